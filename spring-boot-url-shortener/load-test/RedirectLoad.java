@@ -0,0 +1,125 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Closed-loop redirect load driver for machines without wrk. Each of the
+ * concurrency threads sends the next request as soon as the previous one is
+ * answered, so latencies include queueing in the server. Needs only a JDK:
+ *
+ *   java load-test/RedirectLoad.java http://localhost:8080 200 60 abc1234,def5678
+ *
+ * Arguments: base URL, concurrency, duration in seconds, short codes (picked
+ * at random per request) and optionally warm-up seconds (default 10).
+ * Responses other than 302 count as errors and are left out of the latencies.
+ */
+public class RedirectLoad {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: java RedirectLoad.java <base-url> <concurrency> <seconds> <code,code,...> [warm-up-seconds]");
+            System.exit(1);
+        }
+        String baseUrl = args[0].replaceAll("/+$", "");
+        int concurrency = Integer.parseInt(args[1]);
+        long seconds = Long.parseLong(args[2]);
+        List<URI> targets = Arrays.stream(args[3].split(",")).map(code -> URI.create(baseUrl + "/" + code)).toList();
+        long warmUpSeconds = args.length > 4 ? Long.parseLong(args[4]) : 10;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        System.out.printf("Warming up for %ds%n", warmUpSeconds);
+        run(client, targets, concurrency, warmUpSeconds);
+        System.out.printf("Running %d connections for %ds against %s%n", concurrency, seconds, baseUrl);
+        run(client, targets, concurrency, seconds).print(seconds);
+    }
+
+    private static Result run(HttpClient client, List<URI> targets, int concurrency, long seconds) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Worker[] workers = new Worker[concurrency];
+        Thread[] threads = new Thread[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            workers[i] = new Worker(client, targets, running);
+            threads[i] = new Thread(workers[i], "load-" + i);
+            threads[i].start();
+        }
+        Thread.sleep(seconds * 1000);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Result result = new Result();
+        for (Worker worker : workers) {
+            result.latencies.addAll(worker.latencies);
+            result.errors += worker.errors;
+        }
+        return result;
+    }
+
+    private static final class Worker implements Runnable {
+        private final HttpClient client;
+        private final List<URI> targets;
+        private final AtomicBoolean running;
+        // Nanoseconds per successful request
+        private final List<Long> latencies = new ArrayList<>();
+        private long errors;
+
+        Worker(HttpClient client, List<URI> targets, AtomicBoolean running) {
+            this.client = client;
+            this.targets = targets;
+            this.running = running;
+        }
+
+        @Override
+        public void run() {
+            while (running.get()) {
+                URI target = targets.get(ThreadLocalRandom.current().nextInt(targets.size()));
+                HttpRequest request = HttpRequest.newBuilder(target).timeout(Duration.ofSeconds(30)).GET().build();
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 302) {
+                        latencies.add(System.nanoTime() - start);
+                    } else {
+                        errors++;
+                    }
+                } catch (Exception e) {
+                    errors++;
+                }
+            }
+        }
+    }
+
+    private static final class Result {
+        private final List<Long> latencies = new ArrayList<>();
+        private long errors;
+
+        void print(long seconds) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("Requests: %d (%.0f/s), errors: %d%n", sorted.length, (double) sorted.length / seconds, errors);
+            if (sorted.length == 0) {
+                return;
+            }
+            System.out.printf("Latency ms: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                    percentile(sorted, 99.9), sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double percent) {
+            int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.urlshortener.cache;
+
+import com.example.urlshortener.entity.Url;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+
+/**
+ * What a redirect needs to know about a short URL, as held in the "urls"
+ * cache. The password hash itself is not cached: a fingerprint of it is
+ * enough to sign access grants, and the hash is loaded from the database only
+ * when a password is submitted. The owner is kept for the per-user click totals.
+ */
+public record CachedRedirect(long id,
+                             String shortCode,
+                             String originalUrl,
+                             LocalDateTime expiresAt,
+                             boolean active,
+                             boolean analyticsEnabled,
+                             long passwordFingerprint,
+                             String createdBy) {
+
+    public static CachedRedirect from(Url url) {
+        return new CachedRedirect(url.getId(), url.getShortCode(), url.getOriginalUrl(), url.getExpiresAt(),
+                Boolean.TRUE.equals(url.getIsActive()), Boolean.TRUE.equals(url.getAnalyticsEnabled()),
+                url.isPasswordProtected() ? fingerprint(url.getPassword()) : 0L, url.getCreatedBy());
+    }
+
+    public boolean isExpired() {
+        return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
+    }
+
+    public boolean isPasswordProtected() {
+        return passwordFingerprint != 0L;
+    }
+
+    // Changes with the password, so grants for the old one stop working; never 0
+    private static long fingerprint(String encodedPassword) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            long fingerprint = ByteBuffer.wrap(digest).getLong();
+            return fingerprint != 0L ? fingerprint : 1L;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
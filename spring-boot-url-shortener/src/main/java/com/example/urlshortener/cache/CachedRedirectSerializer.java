@@ -0,0 +1,199 @@
+package com.example.urlshortener.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact binary format for {@link CachedRedirect} values in Redis. Version 1 layout:
+ * <pre>
+ * byte     format version (1)
+ * byte     flags: 1 active, 2 analytics enabled, 4 password protected, 8 expires, 16 owner
+ * varlong  id
+ * string   short code
+ * string   original URL
+ * [long    password fingerprint]   if password protected
+ * [varlong expiry epoch second, varint nano]   if expires (UTC, as LocalDateTime has no zone)
+ * [string  owner]   if owner
+ * </pre>
+ * Strings are a varint byte length followed by UTF-8. An entry in a format
+ * this node does not know (another version, or a JSON entry written before
+ * this format existed) reads as a cache miss and is overwritten by the next
+ * lookup. Cached nulls are written by RedisCache itself as a serialized
+ * {@link NullValue}; they are recognised here for readers that bypass
+ * RedisCache, such as the reactive redirect path.
+ */
+public class CachedRedirectSerializer implements RedisSerializer<Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachedRedirectSerializer.class);
+
+    static final byte FORMAT_VERSION = 1;
+
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_ANALYTICS = 2;
+    private static final int FLAG_PASSWORD = 4;
+    private static final int FLAG_EXPIRES = 8;
+    private static final int FLAG_OWNER = 16;
+
+    private static final byte[] BINARY_NULL_VALUE = RedisSerializer.java().serialize(NullValue.INSTANCE);
+
+    private final Timer decodeTimer;
+    private final DistributionSummary entrySize;
+    private final Counter unreadableEntries;
+
+    public CachedRedirectSerializer(MeterRegistry meterRegistry) {
+        this.decodeTimer = Timer.builder("urlshortener.cache.redirect.decode")
+                .description("Time to decode a cached redirect read from Redis")
+                .register(meterRegistry);
+        this.entrySize = DistributionSummary.builder("urlshortener.cache.redirect.size")
+                .description("Encoded size of cached redirects written to Redis")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.unreadableEntries = Counter.builder("urlshortener.cache.redirect.unreadable")
+                .description("Cached redirects in an unknown format, treated as misses")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof CachedRedirect redirect)) {
+            throw new SerializationException("Cannot serialize " + value.getClass().getName() + " as a cached redirect");
+        }
+
+        int flags = (redirect.active() ? FLAG_ACTIVE : 0)
+                | (redirect.analyticsEnabled() ? FLAG_ANALYTICS : 0)
+                | (redirect.isPasswordProtected() ? FLAG_PASSWORD : 0)
+                | (redirect.expiresAt() != null ? FLAG_EXPIRES : 0)
+                | (redirect.createdBy() != null ? FLAG_OWNER : 0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + redirect.originalUrl().length());
+        out.write(FORMAT_VERSION);
+        out.write(flags);
+        writeVarLong(out, redirect.id());
+        writeString(out, redirect.shortCode());
+        writeString(out, redirect.originalUrl());
+        if (redirect.isPasswordProtected()) {
+            writeLong(out, redirect.passwordFingerprint());
+        }
+        if (redirect.expiresAt() != null) {
+            writeVarLong(out, zigZag(redirect.expiresAt().toEpochSecond(ZoneOffset.UTC)));
+            writeVarLong(out, redirect.expiresAt().getNano());
+        }
+        if (redirect.createdBy() != null) {
+            writeString(out, redirect.createdBy());
+        }
+
+        byte[] bytes = out.toByteArray();
+        entrySize.record(bytes.length);
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != FORMAT_VERSION) {
+            if (Arrays.equals(bytes, BINARY_NULL_VALUE)) {
+                return NullValue.INSTANCE;
+            }
+            unreadableEntries.increment();
+            logger.debug("Ignoring cached redirect in unknown format (first byte {})", bytes[0]);
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try {
+            ByteBuffer in = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+            int flags = in.get();
+            long id = readVarLong(in);
+            String shortCode = readString(in);
+            String originalUrl = readString(in);
+            long passwordFingerprint = (flags & FLAG_PASSWORD) != 0 ? in.getLong() : 0L;
+            LocalDateTime expiresAt = null;
+            if ((flags & FLAG_EXPIRES) != 0) {
+                long epochSecond = unZigZag(readVarLong(in));
+                expiresAt = LocalDateTime.ofEpochSecond(epochSecond, (int) readVarLong(in), ZoneOffset.UTC);
+            }
+            String createdBy = (flags & FLAG_OWNER) != 0 ? readString(in) : null;
+
+            return new CachedRedirect(id, shortCode, originalUrl, expiresAt,
+                    (flags & FLAG_ACTIVE) != 0, (flags & FLAG_ANALYTICS) != 0, passwordFingerprint, createdBy);
+        } catch (BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            throw new SerializationException("Corrupt cached redirect", e);
+        } finally {
+            decodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    // Unsigned LEB128: 7 bits per byte, high bit set while more bytes follow
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    // Keeps small negative values (dates before 1970) short
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.urlshortener.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+
+/**
+ * Cache that keeps a bounded in-process copy (L1) of the entries held by a
+ * shared remote cache (L2). Reads are served from L1 when possible and fall
+ * back to L2; writes go to both. Evictions are broadcast by the owning
+ * {@link TwoLevelCacheManager} so that the L1 copies on other nodes are dropped too.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache;
+    private final Cache remoteCache;
+    private final TwoLevelCacheManager cacheManager;
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache,
+                         Cache remoteCache,
+                         TwoLevelCacheManager cacheManager) {
+        super(true);
+        this.name = name;
+        this.localCache = localCache;
+        this.remoteCache = remoteCache;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object storeValue = localCache.getIfPresent(key);
+        if (storeValue != null) {
+            return storeValue;
+        }
+
+        ValueWrapper remoteValue = remoteCache.get(key);
+        if (remoteValue == null) {
+            return null;
+        }
+
+        storeValue = toStoreValue(remoteValue.get());
+        localCache.put(key, storeValue);
+        return storeValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object storeValue = localCache.get(key, k -> toStoreValue(remoteCache.get(k, valueLoader)));
+        return (T) fromStoreValue(storeValue);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remoteCache.put(key, value);
+        localCache.put(key, toStoreValue(value));
+    }
+
+    @Override
+    public void evict(Object key) {
+        remoteCache.evict(key);
+        localCache.invalidate(key);
+        cacheManager.publishEviction(name, key);
+    }
+
+    @Override
+    public void clear() {
+        remoteCache.clear();
+        localCache.invalidateAll();
+        cacheManager.publishEviction(name, null);
+    }
+
+    /**
+     * Reads the in-process tier only, never blocking on the remote tier.
+     *
+     * @return the cached value (possibly wrapping null), or null if not held locally
+     */
+    public ValueWrapper getLocal(Object key) {
+        return toValueWrapper(localCache.getIfPresent(key));
+    }
+
+    /**
+     * Drops an entry from the in-process tier only. Used when another node
+     * reports an eviction; the remote tier has already been updated by that node.
+     */
+    void evictLocal(Object key) {
+        if (key == null) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(key);
+        }
+    }
+
+    // Local half of TwoLevelCacheManager.evictAll
+    void evictLocalAll(Collection<?> keys) {
+        localCache.invalidateAll(keys);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.urlshortener.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Puts an in-process Caffeine tier in front of selected caches of a remote
+ * {@link CacheManager} (Redis). Evictions are published on a Redis channel and
+ * applied to the local tier of every other node listening on it.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    private static final String SEPARATOR = "|";
+    // Separates the keys of a batched eviction; short codes never contain it
+    private static final String KEY_SEPARATOR = "\n";
+
+    private final CacheManager remoteCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final String invalidationTopic;
+    private final Set<String> localCacheNames;
+    private final long maximumSize;
+    private final Duration localTtl;
+    private final MeterRegistry meterRegistry;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager,
+                                StringRedisTemplate redisTemplate,
+                                String invalidationTopic,
+                                Set<String> localCacheNames,
+                                long maximumSize,
+                                Duration localTtl,
+                                MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.invalidationTopic = invalidationTopic;
+        this.localCacheNames = localCacheNames;
+        this.maximumSize = maximumSize;
+        this.localTtl = localTtl;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        if (!localCacheNames.contains(name)) {
+            return remoteCacheManager.getCache(name);
+        }
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    private TwoLevelCache createCache(String name) {
+        Cache remoteCache = remoteCacheManager.getCache(name);
+        if (remoteCache == null) {
+            throw new IllegalStateException("No remote cache configured for: " + name);
+        }
+
+        // W-TinyLFU admission keeps the hot head of a skewed key distribution resident
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, localCache, name + ".local");
+        }
+
+        logger.info("Created two-level cache '{}' (local max size: {}, local TTL: {})", name, maximumSize, localTtl);
+        return new TwoLevelCache(name, localCache, remoteCache, this);
+    }
+
+    /**
+     * Evicts many keys of one cache with two Redis round trips: the deletes are
+     * pipelined and other nodes get a single invalidation message listing all keys.
+     */
+    public void evictAll(String cacheName, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        Cache remoteCache = remoteCacheManager.getCache(cacheName);
+        if (!(remoteCache instanceof RedisCache redisCache)) {
+            Cache cache = getCache(cacheName);
+            if (cache != null) {
+                keys.forEach(cache::evict);
+            }
+            return;
+        }
+
+        String keyPrefix = redisCache.getCacheConfiguration().getKeyPrefixFor(cacheName);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.keyCommands().del((keyPrefix + key).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+
+        TwoLevelCache cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.evictLocalAll(keys);
+        }
+        if (localCacheNames.contains(cacheName)) {
+            publishEviction(cacheName, String.join(KEY_SEPARATOR, keys));
+        }
+    }
+
+    void publishEviction(String cacheName, Object key) {
+        String message = nodeId + SEPARATOR + cacheName + SEPARATOR + (key != null ? key.toString() : "");
+        try {
+            redisTemplate.convertAndSend(invalidationTopic, message);
+        } catch (Exception e) {
+            // Other nodes fall back to the local TTL if the broadcast is lost
+            logger.warn("Failed to publish cache invalidation for {}:{}", cacheName, key, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            logger.debug("Applying remote cache invalidation for {}:{}", parts[1], parts[2]);
+            if (parts[2].contains(KEY_SEPARATOR)) {
+                cache.evictLocalAll(List.of(parts[2].split(KEY_SEPARATOR)));
+            } else {
+                cache.evictLocal(parts[2].isEmpty() ? null : parts[2]);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.urlshortener.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-route rate limit policies applied by RateLimitFilter, keyed by client IP or authenticated user
+@Component
+@ConfigurationProperties(prefix = "url-shortener.rate-limiting")
+public class RateLimitPolicyProperties {
+
+    private List<Policy> policies = new ArrayList<>();
+
+    public List<Policy> getPolicies() { return policies; }
+    public void setPolicies(List<Policy> policies) { this.policies = policies; }
+
+    public static class Policy {
+
+        private String name; // also the bucket key prefix, e.g. url_access:<ip>
+        private List<String> methods = new ArrayList<>(); // empty matches any method
+        private List<String> paths = new ArrayList<>();
+        private List<String> excludePaths = new ArrayList<>(); // matched paths that are not limited
+        private String key = "ip"; // ip, or user: the authenticated user's name, the client IP for anonymous requests
+        private Integer requestsPerMinute; // defaults to rate-limiting.requests-per-minute
+        private Integer requestsPerHour; // defaults to rate-limiting.requests-per-hour
+
+        // Getters and Setters
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public List<String> getMethods() { return methods; }
+        public void setMethods(List<String> methods) { this.methods = methods; }
+
+        public List<String> getPaths() { return paths; }
+        public void setPaths(List<String> paths) { this.paths = paths; }
+
+        public List<String> getExcludePaths() { return excludePaths; }
+        public void setExcludePaths(List<String> excludePaths) { this.excludePaths = excludePaths; }
+
+        public String getKey() { return key; }
+        public void setKey(String key) { this.key = key; }
+
+        public Integer getRequestsPerMinute() { return requestsPerMinute; }
+        public void setRequestsPerMinute(Integer requestsPerMinute) { this.requestsPerMinute = requestsPerMinute; }
+
+        public Integer getRequestsPerHour() { return requestsPerHour; }
+        public void setRequestsPerHour(Integer requestsPerHour) { this.requestsPerHour = requestsPerHour; }
+    }
+}
@@ -1,21 +1,45 @@
 package com.example.urlshortener.config;
 
+import com.example.urlshortener.cache.CachedRedirectSerializer;
+import com.example.urlshortener.cache.TwoLevelCacheManager;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.redis.jedis.cas.JedisBasedProxyManager;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurer;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+import org.springframework.cache.interceptor.LoggingCacheErrorHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 @Configuration
 public class RedisConfig {
@@ -29,23 +53,100 @@ public class RedisConfig {
     @Value("${url-shortener.cache.ttl}")
     private long cacheTtl;
 
+    @Value("${url-shortener.cache.local.enabled}")
+    private boolean localCacheEnabled;
+
+    @Value("${url-shortener.cache.local.maximum-size}")
+    private long localCacheMaximumSize;
+
+    @Value("${url-shortener.cache.local.ttl}")
+    private long localCacheTtl;
+
+    @Value("${url-shortener.cache.invalidation-topic}")
+    private String invalidationTopic;
+
+    @Value("${spring.redis.jedis.pool.max-active}")
+    private int poolMaxActive;
+
+    @Value("${spring.redis.jedis.pool.max-idle}")
+    private int poolMaxIdle;
+
+    @Value("${spring.redis.jedis.pool.min-idle}")
+    private int poolMinIdle;
+
+    @Value("${spring.redis.jedis.pool.max-wait}")
+    private Duration poolMaxWait;
+
+    @Value("${spring.redis.timeout}")
+    private Duration redisTimeout;
+
     @Bean
+    @Primary
     public JedisConnectionFactory jedisConnectionFactory() {
         JedisConnectionFactory factory = new JedisConnectionFactory();
         factory.setHostName(redisHost);
         factory.setPort(redisPort);
         factory.setUsePool(true);
         
+        // A bounded wait: when the pool is exhausted callers fail fast instead of piling up
         JedisPoolConfig poolConfig = new JedisPoolConfig();
-        poolConfig.setMaxTotal(8);
-        poolConfig.setMaxIdle(8);
-        poolConfig.setMinIdle(0);
-        poolConfig.setMaxWaitMillis(-1);
+        poolConfig.setMaxTotal(poolMaxActive);
+        poolConfig.setMaxIdle(poolMaxIdle);
+        poolConfig.setMinIdle(poolMinIdle);
+        poolConfig.setMaxWait(poolMaxWait);
         factory.setPoolConfig(poolConfig);
         
         return factory;
     }
 
+    // Non-blocking client for the reactive redirect path; one multiplexed connection, no pool to wait on
+    @Bean
+    @ConditionalOnProperty(name = "url-shortener.redirect.mode", havingValue = "reactive")
+    public LettuceConnectionFactory reactiveRedisConnectionFactory() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(redisHost, redisPort);
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(redisTimeout)
+                .build();
+        return new LettuceConnectionFactory(configuration, clientConfiguration);
+    }
+
+    // Reads "urls" cache entries with the same serializer the cache writes them with
+    @Bean
+    @ConditionalOnProperty(name = "url-shortener.redirect.mode", havingValue = "reactive")
+    public ReactiveRedisTemplate<String, Object> reactiveUrlCacheTemplate(
+            LettuceConnectionFactory reactiveRedisConnectionFactory,
+            CachedRedirectSerializer urlCacheSerializer) {
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(new StringRedisSerializer())
+                .value(urlCacheSerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(reactiveRedisConnectionFactory, context);
+    }
+
+    // Cache failures (e.g. an exhausted pool) are logged and treated as misses
+    @Bean
+    public CachingConfigurer cachingConfigurer() {
+        return new CachingConfigurer() {
+            @Override
+            public CacheErrorHandler errorHandler() {
+                return new LoggingCacheErrorHandler();
+            }
+        };
+    }
+
+    // Redirect entries are stored in a compact binary format instead of JSON
+    @Bean
+    public CachedRedirectSerializer urlCacheSerializer(MeterRegistry meterRegistry) {
+        return new CachedRedirectSerializer(meterRegistry);
+    }
+
+    // JSON for the other caches; values may hold LocalDateTime fields and derived getters that are not read back
+    private static RedisSerializer<Object> cacheValueSerializer() {
+        return new GenericJackson2JsonRedisSerializer().configure(mapper -> mapper
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+    }
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
@@ -64,23 +165,70 @@ public class RedisConfig {
     }
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     StringRedisTemplate stringRedisTemplate,
+                                     CachedRedirectSerializer urlCacheSerializer,
+                                     MeterRegistry meterRegistry) {
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofSeconds(cacheTtl))
-                .serializeKeysWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
-                        .fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
-                        .fromSerializer(new GenericJackson2JsonRedisSerializer()));
+                .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(cacheValueSerializer()));
 
         // Configure different TTL for different caches
         Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
-        cacheConfigurations.put("urls", defaultConfig.entryTtl(Duration.ofSeconds(cacheTtl)));
+        cacheConfigurations.put("urls", defaultConfig.entryTtl(Duration.ofSeconds(cacheTtl))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(urlCacheSerializer)));
         cacheConfigurations.put("analytics", defaultConfig.entryTtl(Duration.ofMinutes(5)));
         cacheConfigurations.put("rate-limits", defaultConfig.entryTtl(Duration.ofMinutes(1)));
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
                 .build();
+
+        if (!localCacheEnabled) {
+            return redisCacheManager;
+        }
+
+        // Not exposed as a bean, so load the per-cache configurations explicitly
+        redisCacheManager.afterPropertiesSet();
+
+        // Redirect lookups get an in-process tier in front of Redis
+        return new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate, invalidationTopic,
+                Set.of("urls"), localCacheMaximumSize, Duration.ofSeconds(localCacheTtl), meterRegistry);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       CacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+
+        // Drop local copies when another node evicts an entry
+        if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+            container.addMessageListener(twoLevelCacheManager, new ChannelTopic(invalidationTopic));
+        }
+
+        return container;
+    }
+
+    // Dedicated pool for rate limit buckets; Bucket4j's CAS scripts need raw Jedis connections
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "url-shortener.rate-limiting.mode", havingValue = "distributed")
+    public JedisPool rateLimitJedisPool() {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(16);
+        poolConfig.setMaxIdle(16);
+        poolConfig.setMinIdle(2);
+        return new JedisPool(poolConfig, redisHost, redisPort);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "url-shortener.rate-limiting.mode", havingValue = "distributed")
+    public ProxyManager<byte[]> rateLimitProxyManager(JedisPool rateLimitJedisPool) {
+        // Bucket keys expire shortly after the bucket would have refilled to capacity
+        return JedisBasedProxyManager.builderFor(rateLimitJedisPool)
+                .withExpirationStrategy(ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(Duration.ofSeconds(10)))
+                .build();
     }
-}
\ No newline at end of file
+}
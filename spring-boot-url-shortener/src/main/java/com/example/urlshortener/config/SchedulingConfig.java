@@ -1,13 +1,22 @@
 package com.example.urlshortener.config;
 
+import com.example.urlshortener.repository.UrlAnalyticsPartitions;
 import com.example.urlshortener.service.AnalyticsService;
+import com.example.urlshortener.service.ClickCounterService;
+import com.example.urlshortener.service.GeoLocationService;
+import com.example.urlshortener.service.PopularUrlService;
+import com.example.urlshortener.service.ShortCodeFilterService;
 import com.example.urlshortener.service.UrlShortenerService;
+import com.example.urlshortener.service.UrlStatsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class SchedulingConfig {
     
@@ -18,9 +27,140 @@ public class SchedulingConfig {
     
     @Autowired
     private AnalyticsService analyticsService;
+    
+    @Autowired
+    private ClickCounterService clickCounterService;
+    
+    @Autowired
+    private ShortCodeFilterService shortCodeFilterService;
+
+    @Autowired
+    private GeoLocationService geoLocationService;
+
+    @Autowired
+    private UrlAnalyticsPartitions analyticsPartitions;
+
+    @Autowired
+    private PopularUrlService popularUrlService;
+
+    @Autowired
+    private UrlStatsService urlStatsService;
+    
+    @Value("${url-shortener.analytics.retention-days}")
+    private int analyticsRetentionDays;
+
+    // Write accumulated click counts to the database
+    @Scheduled(fixedDelayString = "${url-shortener.analytics.flush-interval}", timeUnit = TimeUnit.SECONDS)
+    public void flushClickCounts() {
+        try {
+            int flushed = clickCounterService.flush();
+            if (flushed > 0) {
+                logger.debug("Flushed click counts for {} URLs", flushed);
+            }
+        } catch (Exception e) {
+            logger.error("Error flushing click counts", e);
+        }
+    }
+
+    // Fold recent clicks into the popular URL ranking
+    @Scheduled(fixedDelayString = "${url-shortener.popular.refresh-interval}", timeUnit = TimeUnit.SECONDS)
+    public void refreshPopularUrls() {
+        try {
+            popularUrlService.refresh();
+        } catch (Exception e) {
+            logger.error("Error refreshing popular URLs", e);
+        }
+    }
+
+    // The first load runs on startup
+    @Scheduled(fixedDelayString = "${url-shortener.popular.all-time-rebuild-interval}",
+               initialDelayString = "${url-shortener.popular.all-time-rebuild-interval}",
+               timeUnit = TimeUnit.SECONDS)
+    public void rebuildAllTimePopularUrls() {
+        try {
+            popularUrlService.rebuildAllTime();
+        } catch (Exception e) {
+            logger.error("Error rebuilding all-time popular URLs", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${url-shortener.popular.redis.sync-interval}", timeUnit = TimeUnit.SECONDS)
+    public void syncPopularUrls() {
+        try {
+            popularUrlService.syncWithRedis();
+        } catch (Exception e) {
+            logger.error("Error syncing popular URLs", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${url-shortener.stats.redis.sync-interval}", timeUnit = TimeUnit.SECONDS)
+    public void syncStats() {
+        try {
+            urlStatsService.syncWithRedis();
+        } catch (Exception e) {
+            logger.error("Error syncing stats", e);
+        }
+    }
+
+    // Correct drift in the incrementally maintained stats
+    @Scheduled(fixedDelayString = "${url-shortener.stats.reconcile-interval}",
+               initialDelayString = "${url-shortener.stats.reconcile-interval}",
+               timeUnit = TimeUnit.SECONDS)
+    public void reconcileStats() {
+        try {
+            urlStatsService.reconcile();
+        } catch (Exception e) {
+            logger.error("Error reconciling stats", e);
+        }
+    }
+
+    // Rebuild the short code filter; the first build runs on startup
+    @Scheduled(fixedDelayString = "${url-shortener.short-code.filter.rebuild-interval}",
+               initialDelayString = "${url-shortener.short-code.filter.rebuild-interval}",
+               timeUnit = TimeUnit.SECONDS)
+    public void rebuildShortCodeFilter() {
+        try {
+            shortCodeFilterService.rebuild();
+        } catch (Exception e) {
+            logger.error("Error rebuilding short code filter", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${url-shortener.short-code.filter.retry-interval}", timeUnit = TimeUnit.SECONDS)
+    public void registerPendingShortCodes() {
+        try {
+            shortCodeFilterService.registerPending();
+        } catch (Exception e) {
+            logger.error("Error registering pending short codes", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${geoip.reload-interval}",
+               initialDelayString = "${geoip.reload-interval}",
+               timeUnit = TimeUnit.SECONDS)
+    public void reloadGeoIpDatabase() {
+        try {
+            geoLocationService.reloadIfChanged();
+        } catch (Exception e) {
+            logger.error("Error reloading GeoIP database", e);
+        }
+    }
+
+    // Keep the partition catalog in sync with other nodes and create upcoming partitions
+    @Scheduled(fixedDelayString = "${url-shortener.analytics.partitions.maintenance-interval}",
+               initialDelayString = "${url-shortener.analytics.partitions.maintenance-interval}",
+               timeUnit = TimeUnit.SECONDS)
+    public void maintainAnalyticsPartitions() {
+        try {
+            analyticsPartitions.refresh();
+            analyticsPartitions.createAhead();
+        } catch (Exception e) {
+            logger.error("Error maintaining analytics partitions", e);
+        }
+    }
 
-    // Clean up expired URLs every hour
-    @Scheduled(fixedRate = 3600000) // 1 hour
+    // Deactivate expired URLs; redirects reject them even before this runs
+    @Scheduled(fixedDelayString = "${url-shortener.expiration.reaper.interval}", timeUnit = TimeUnit.SECONDS)
     public void cleanupExpiredUrls() {
         logger.info("Starting scheduled cleanup of expired URLs");
         try {
@@ -31,12 +171,12 @@ public class SchedulingConfig {
         }
     }
 
-    // Clean up old analytics data every day (keep last 90 days)
+    // Clean up analytics data past the retention window every day
     @Scheduled(cron = "0 0 2 * * ?") // Daily at 2 AM
     public void cleanupOldAnalytics() {
         logger.info("Starting scheduled cleanup of old analytics data");
         try {
-            analyticsService.cleanupOldAnalytics(90); // Keep last 90 days
+            analyticsService.cleanupOldAnalytics(analyticsRetentionDays);
             logger.info("Cleaned up old analytics data");
         } catch (Exception e) {
             logger.error("Error during analytics cleanup", e);
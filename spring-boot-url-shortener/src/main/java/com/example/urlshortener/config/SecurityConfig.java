@@ -42,6 +42,7 @@ public class SecurityConfig {
                 
                 // Protected endpoints
                 .requestMatchers("/api/urls/my-urls").authenticated()
+                .requestMatchers("/api/urls/shorten/bulk").authenticated()
                 .requestMatchers("/api/urls/{id}").authenticated()
                 .requestMatchers("/api/analytics/**").authenticated()
                 
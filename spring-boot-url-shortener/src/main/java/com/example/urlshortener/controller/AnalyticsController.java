@@ -1,17 +1,26 @@
 package com.example.urlshortener.controller;
 
 import com.example.urlshortener.dto.UrlAnalyticsResponse;
+import com.example.urlshortener.service.AnalyticsExportService;
 import com.example.urlshortener.service.AnalyticsService;
 import com.example.urlshortener.service.RateLimitingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -23,8 +32,14 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
     
+    @Autowired
+    private AnalyticsExportService exportService;
+    
     @Autowired
     private RateLimitingService rateLimitingService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @GetMapping("/url/{shortCode}")
     public ResponseEntity<?> getUrlAnalytics(@PathVariable String shortCode, Authentication authentication) {
@@ -82,6 +97,70 @@ public class AnalyticsController {
         }
     }
 
+    // Raw click export, streamed as it is read; from/to are inclusive days
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAnalytics(@RequestParam(defaultValue = "csv") String format,
+                                             @RequestParam(required = false) List<Long> urlIds,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                             @RequestParam(defaultValue = "false") boolean gzip,
+                                             Authentication authentication) {
+        if (authentication == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        String userKey = authentication.getName();
+        
+        // Check rate limiting
+        if (!rateLimitingService.isAnalyticsAccessAllowed(userKey)) {
+            return errorResponse(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded. Please try again later.");
+        }
+        
+        if (!"csv".equals(format) && !"ndjson".equals(format)) {
+            return errorResponse(HttpStatus.BAD_REQUEST, "Format must be csv or ndjson");
+        }
+        
+        LocalDate toDate = to != null ? to : LocalDate.now();
+        LocalDate fromDate = from != null ? from : LocalDate.EPOCH;
+        if (fromDate.isAfter(toDate)) {
+            return errorResponse(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        
+        List<Long> exportIds;
+        try {
+            exportIds = exportService.resolveUrlIds(urlIds, userKey);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid analytics export request: {}", e.getMessage());
+            return errorResponse(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 64 * 1024);
+                exportService.export(exportIds, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay(), format, gzipStream);
+                gzipStream.finish();
+            } else {
+                exportService.export(exportIds, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay(), format, outputStream);
+            }
+        };
+        
+        String filename = "clicks." + format + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : "ndjson".equals(format) ? MediaType.APPLICATION_NDJSON : MediaType.parseMediaType("text/csv");
+        
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(contentType)
+                .body(body);
+    }
+
+    // Same error body as the other endpoints; the streaming return type rules out a Map body
+    private ResponseEntity<StreamingResponseBody> errorResponse(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> objectMapper.writeValue(outputStream, Map.of("error", message)));
+    }
+
     @DeleteMapping("/url/id/{urlId}")
     public ResponseEntity<?> deleteUrlAnalytics(@PathVariable Long urlId, Authentication authentication) {
         if (authentication == null) {
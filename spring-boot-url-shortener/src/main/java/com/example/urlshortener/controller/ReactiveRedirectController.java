@@ -0,0 +1,91 @@
+package com.example.urlshortener.controller;
+
+import com.example.urlshortener.cache.CachedRedirect;
+import com.example.urlshortener.service.AccessGrantService;
+import com.example.urlshortener.service.AnalyticsService;
+import com.example.urlshortener.service.ReactiveRedirectService;
+import com.example.urlshortener.service.UrlShortenerService;
+import com.example.urlshortener.util.ClientIpResolver;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Redirects in the reactive mode (url-shortener.redirect.mode=reactive). The
+ * handler returns a Mono, so the request runs as an async servlet request and
+ * the container thread is released while the short code is looked up. Clicks
+ * are handed to the in-memory counters and the analytics ingestion queue,
+ * neither of which blocks. Everything else is served by the regular MVC API.
+ */
+@RestController
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+@ConditionalOnProperty(name = "url-shortener.redirect.mode", havingValue = "reactive")
+class ReactiveRedirectController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveRedirectController.class);
+
+    @Autowired
+    private ReactiveRedirectService reactiveRedirectService;
+
+    @Autowired
+    private UrlShortenerService urlShortenerService;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private AccessGrantService accessGrantService;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
+    // Rate limited per client IP by RateLimitFilter (url_access policy)
+    @GetMapping("/{shortCode}")
+    public Mono<ResponseEntity<String>> redirectToOriginalUrl(@PathVariable String shortCode,
+                                                              HttpServletRequest request) {
+        // Read everything from the request before it goes async
+        String clientIp = clientIpResolver.getClientIpAddress(request);
+        String userAgent = request.getHeader("User-Agent");
+        String referer = request.getHeader("Referer");
+        String language = request.getHeader("Accept-Language");
+        String accessGrant = accessGrantService.readGrant(request, shortCode);
+
+        return reactiveRedirectService.resolve(shortCode)
+                .map(url -> redirect(url, accessGrant, clientIp, userAgent, referer, language))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Short URL not found"))
+                .onErrorResume(IllegalArgumentException.class, e -> {
+                    logger.warn("Invalid short code access: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage()));
+                })
+                .onErrorResume(e -> {
+                    logger.error("Error redirecting short URL: {}", shortCode, e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error"));
+                });
+    }
+
+    private ResponseEntity<String> redirect(CachedRedirect url, String accessGrant, String clientIp,
+                                            String userAgent, String referer, String language) {
+        // If password protected and not yet unlocked by this visitor, redirect to password page
+        if (url.isPasswordProtected() && !accessGrantService.isValid(accessGrant, url)) {
+            return ResponseEntity.status(HttpStatus.FOUND).header(HttpHeaders.LOCATION, "/password/" + url.shortCode()).build();
+        }
+
+        String originalUrl = urlShortenerService.expandUrl(url, null, accessGrant);
+
+        urlShortenerService.recordClick(url);
+        analyticsService.recordClick(url, clientIp, userAgent, referer, language);
+
+        logger.info("Redirected {} to {}", url.shortCode(), originalUrl);
+        return ResponseEntity.status(HttpStatus.FOUND).header(HttpHeaders.LOCATION, originalUrl).build();
+    }
+}
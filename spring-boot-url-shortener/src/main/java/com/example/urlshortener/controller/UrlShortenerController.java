@@ -1,25 +1,37 @@
 package com.example.urlshortener.controller;
 
+import com.example.urlshortener.cache.CachedRedirect;
+import com.example.urlshortener.dto.BulkShortenResult;
 import com.example.urlshortener.dto.ShortenUrlRequest;
 import com.example.urlshortener.dto.ShortenUrlResponse;
+import com.example.urlshortener.service.AccessGrantService;
 import com.example.urlshortener.service.AnalyticsService;
+import com.example.urlshortener.service.PopularUrlService;
 import com.example.urlshortener.service.RateLimitingService;
 import com.example.urlshortener.service.UrlShortenerService;
-import com.example.urlshortener.util.ClientInfoUtil;
+import com.example.urlshortener.util.ClientIpResolver;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -39,20 +51,29 @@ public class UrlShortenerController {
     
     @Autowired
     private RateLimitingService rateLimitingService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private AccessGrantService accessGrantService;
+    
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+    
+    @Value("${url-shortener.bulk.max-items}")
+    private int bulkMaxItems;
+    
+    @Value("${url-shortener.bulk.chunk-size}")
+    private int bulkChunkSize;
 
     @PostMapping("/shorten")
     public ResponseEntity<?> shortenUrl(@Valid @RequestBody ShortenUrlRequest request,
                                        HttpServletRequest httpRequest,
                                        Authentication authentication) {
         
-        String clientIp = ClientInfoUtil.getClientIpAddress(httpRequest);
-        String userKey = authentication != null ? authentication.getName() : clientIp;
-        
-        // Check rate limiting
-        if (!rateLimitingService.isUrlCreationAllowed(userKey)) {
-            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                    .body(Map.of("error", "Rate limit exceeded. Please try again later."));
-        }
+        // Rate limited per user, or per client IP when anonymous, by RateLimitFilter (url_creation policy)
+        String clientIp = clientIpResolver.getClientIpAddress(httpRequest);
         
         try {
             String createdBy = authentication != null ? authentication.getName() : clientIp;
@@ -73,16 +94,98 @@ public class UrlShortenerController {
         }
     }
 
+    // Accepts a JSON array or NDJSON and streams back one NDJSON result line per item
+    @PostMapping(value = "/shorten/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public void shortenUrlsInBulk(HttpServletRequest httpRequest,
+                                  HttpServletResponse httpResponse,
+                                  Authentication authentication) throws IOException {
+        if (authentication == null) {
+            httpResponse.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+        
+        String createdBy = authentication.getName();
+        String clientIp = clientIpResolver.getClientIpAddress(httpRequest);
+        String userAgent = httpRequest.getHeader("User-Agent");
+        
+        httpResponse.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        httpResponse.setCharacterEncoding("UTF-8");
+        PrintWriter writer = httpResponse.getWriter();
+        
+        int index = 0;
+        String inputError = null;
+        
+        // Items are read lazily, so memory use is bounded by the chunk size
+        try (MappingIterator<ShortenUrlRequest> items = objectMapper.readerFor(ShortenUrlRequest.class)
+                .readValues(httpRequest.getInputStream())) {
+            while (inputError == null) {
+                List<ShortenUrlRequest> chunk = new ArrayList<>(bulkChunkSize);
+                try {
+                    while (chunk.size() < bulkChunkSize && index + chunk.size() < bulkMaxItems && items.hasNextValue()) {
+                        chunk.add(items.nextValue());
+                    }
+                    if (chunk.isEmpty() && items.hasNextValue()) {
+                        inputError = "Bulk request exceeds " + bulkMaxItems + " items; remaining items were not processed";
+                    }
+                } catch (JsonProcessingException e) {
+                    inputError = "Malformed request item: " + e.getOriginalMessage();
+                }
+                
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                
+                if (!rateLimitingService.isBulkOperationAllowed(createdBy, chunk.size())) {
+                    inputError = "Rate limit exceeded; remaining items were not processed";
+                    break;
+                }
+                
+                try {
+                    for (BulkShortenResult result : urlShortenerService.shortenUrls(chunk, index, createdBy, clientIp, userAgent)) {
+                        writer.println(objectMapper.writeValueAsString(result));
+                    }
+                } catch (Exception e) {
+                    logger.error("Error shortening bulk chunk starting at item {}", index, e);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        writer.println(objectMapper.writeValueAsString(BulkShortenResult.failed(index + i, "Internal server error")));
+                    }
+                }
+                
+                index += chunk.size();
+                
+                // Results reach the client chunk by chunk
+                writer.flush();
+            }
+        }
+        
+        if (inputError != null) {
+            writer.println(objectMapper.writeValueAsString(BulkShortenResult.failed(index, inputError)));
+        }
+        
+        logger.info("Bulk shortening processed {} items for user: {}", index, createdBy);
+    }
+
+    // ?cursor= (empty for the first page) switches to keyset pages; count=false skips the total
     @GetMapping("/my-urls")
-    public ResponseEntity<Page<ShortenUrlResponse>> getMyUrls(Pageable pageable, Authentication authentication) {
+    public ResponseEntity<?> getMyUrls(@RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "true") boolean count,
+                                       Pageable pageable, Authentication authentication) {
         if (authentication == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
         
         String createdBy = authentication.getName();
-        Page<ShortenUrlResponse> urls = urlShortenerService.getUserUrls(createdBy, pageable);
-        
-        return ResponseEntity.ok(urls);
+        try {
+            if (cursor != null) {
+                return ResponseEntity.ok(urlShortenerService.getUserUrls(createdBy, cursor, pageable.getPageSize()));
+            }
+            if (!count) {
+                return ResponseEntity.ok(urlShortenerService.getUserUrlsSlice(createdBy, pageable));
+            }
+            return ResponseEntity.ok(urlShortenerService.getUserUrls(createdBy, pageable));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
@@ -137,56 +240,91 @@ public class UrlShortenerController {
         }
     }
 
+    // Served from the in-memory heavy hitters ranking; window is 1h, 24h or all
     @GetMapping("/popular")
-    public ResponseEntity<Page<ShortenUrlResponse>> getPopularUrls(Pageable pageable) {
-        Page<ShortenUrlResponse> urls = urlShortenerService.getPopularUrls(pageable);
-        return ResponseEntity.ok(urls);
+    public ResponseEntity<?> getPopularUrls(@RequestParam(defaultValue = "all") String window,
+                                            @RequestParam(required = false) String cursor,
+                                            Pageable pageable) {
+        try {
+            PopularUrlService.Window popularWindow = PopularUrlService.Window.fromLabel(window);
+            if (cursor != null) {
+                return ResponseEntity.ok(urlShortenerService.getPopularUrls(popularWindow, cursor, pageable.getPageSize()));
+            }
+            return ResponseEntity.ok(urlShortenerService.getPopularUrls(popularWindow, pageable));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/recent")
-    public ResponseEntity<Page<ShortenUrlResponse>> getRecentUrls(Pageable pageable) {
-        Page<ShortenUrlResponse> urls = urlShortenerService.getRecentUrls(pageable);
-        return ResponseEntity.ok(urls);
+    public ResponseEntity<?> getRecentUrls(@RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "true") boolean count,
+                                           Pageable pageable) {
+        try {
+            if (cursor != null) {
+                return ResponseEntity.ok(urlShortenerService.getRecentUrls(cursor, pageable.getPageSize()));
+            }
+            if (!count) {
+                return ResponseEntity.ok(urlShortenerService.getRecentUrlsSlice(pageable));
+            }
+            return ResponseEntity.ok(urlShortenerService.getRecentUrls(pageable));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats(Authentication authentication) {
-        Map<String, Object> stats = Map.of(
-            "totalUrls", urlShortenerService.getTotalUrls(),
-            "totalClicks", urlShortenerService.getTotalClicks()
-        );
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalUrls", urlShortenerService.getTotalUrls());
+        stats.put("totalClicks", urlShortenerService.getTotalClicks());
         
         if (authentication != null) {
-            String createdBy = authentication.getName();
-            stats = Map.of(
-                "totalUrls", urlShortenerService.getTotalUrls(),
-                "totalClicks", urlShortenerService.getTotalClicks(),
-                "userTotalClicks", urlShortenerService.getUserTotalClicks(createdBy)
-            );
+            stats.put("userTotalClicks", urlShortenerService.getUserTotalClicks(authentication.getName()));
         }
         
         return ResponseEntity.ok(stats);
     }
 
     // Password verification endpoint for password-protected URLs
+    // Issues an access grant cookie so repeat visits skip the password check
     @PostMapping("/{shortCode}/verify-password")
     public ResponseEntity<?> verifyPassword(@PathVariable String shortCode,
-                                           @RequestBody Map<String, String> request) {
+                                           @RequestBody Map<String, String> request,
+                                           HttpServletRequest httpRequest,
+                                           HttpServletResponse httpResponse) {
         try {
+            Optional<CachedRedirect> urlOpt = urlShortenerService.resolveShortCode(shortCode);
+            if (urlOpt.isEmpty()) {
+                throw new IllegalArgumentException("Short URL not found");
+            }
+            
+            CachedRedirect url = urlOpt.get();
             String password = request.get("password");
-            String originalUrl = urlShortenerService.expandUrl(shortCode, password);
+            String accessGrant = accessGrantService.readGrant(httpRequest, shortCode);
+            String originalUrl = urlShortenerService.expandUrl(url, password, accessGrant);
+            
+            if (url.isPasswordProtected() && !accessGrantService.isValid(accessGrant, url)) {
+                accessGrantService.issueGrant(httpResponse, url);
+            }
             
             return ResponseEntity.ok(Map.of("originalUrl", originalUrl));
             
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            logger.warn("Password check rejected for {}: {}", shortCode, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "1")
+                    .body(Map.of("error", "Server busy. Please try again shortly."));
         }
     }
 }
 
-// Separate controller for URL redirection (no /api prefix)
+// Separate controller for URL redirection (no /api prefix); see ReactiveRedirectController for the reactive mode
 @RestController
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+@ConditionalOnProperty(name = "url-shortener.redirect.mode", havingValue = "blocking", matchIfMissing = true)
 class RedirectController {
     
     private static final Logger logger = LoggerFactory.getLogger(RedirectController.class);
@@ -198,48 +336,45 @@ class RedirectController {
     private AnalyticsService analyticsService;
     
     @Autowired
-    private RateLimitingService rateLimitingService;
+    private AccessGrantService accessGrantService;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
 
+    // Rate limited per client IP by RateLimitFilter (url_access policy)
     @GetMapping("/{shortCode}")
     public void redirectToOriginalUrl(@PathVariable String shortCode,
                                      HttpServletRequest request,
                                      HttpServletResponse response) throws IOException {
         
-        String clientIp = ClientInfoUtil.getClientIpAddress(request);
-        
-        // Check rate limiting for URL access
-        if (!rateLimitingService.isUrlAccessAllowed(clientIp)) {
-            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-            response.getWriter().write("Rate limit exceeded");
-            return;
-        }
+        String clientIp = clientIpResolver.getClientIpAddress(request);
         
         try {
-            // Check if URL requires password
-            Optional<com.example.urlshortener.entity.Url> urlOpt = urlShortenerService.findByShortCode(shortCode);
+            // Resolved once; unknown codes never reach the cache or the database
+            Optional<CachedRedirect> urlOpt = urlShortenerService.resolveShortCode(shortCode);
             if (urlOpt.isEmpty()) {
                 response.setStatus(HttpStatus.NOT_FOUND.value());
                 response.getWriter().write("Short URL not found");
                 return;
             }
             
-            com.example.urlshortener.entity.Url url = urlOpt.get();
+            CachedRedirect url = urlOpt.get();
             
-            // If password protected, redirect to password page
-            if (url.isPasswordProtected()) {
+            // If password protected and not yet unlocked by this visitor, redirect to password page
+            String accessGrant = accessGrantService.readGrant(request, shortCode);
+            if (url.isPasswordProtected() && !accessGrantService.isValid(accessGrant, url)) {
                 response.sendRedirect("/password/" + shortCode);
                 return;
             }
             
             // Expand URL
-            String originalUrl = urlShortenerService.expandUrl(shortCode, null);
+            String originalUrl = urlShortenerService.expandUrl(url, null, accessGrant);
             
             // Record click
-            urlShortenerService.recordClick(shortCode, clientIp, 
-                request.getHeader("User-Agent"), request.getHeader("Referer"));
+            urlShortenerService.recordClick(url);
             
             // Record analytics
-            analyticsService.recordClick(shortCode, clientIp, 
+            analyticsService.recordClick(url, clientIp, 
                 request.getHeader("User-Agent"), request.getHeader("Referer"),
                 request.getHeader("Accept-Language"));
             
@@ -258,6 +393,12 @@ class RedirectController {
             response.getWriter().write("Internal server error");
         }
     }
+}
+
+// Password page for protected URLs, served in both redirect modes
+@RestController
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+class PasswordPageController {
 
     @GetMapping("/password/{shortCode}")
     public void showPasswordPage(@PathVariable String shortCode, HttpServletResponse response) throws IOException {
@@ -275,4 +416,4 @@ class RedirectController {
             "</body></html>"
         );
     }
-}
\ No newline at end of file
+}
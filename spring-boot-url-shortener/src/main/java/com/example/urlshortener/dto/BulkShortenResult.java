@@ -0,0 +1,44 @@
+package com.example.urlshortener.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One line of the bulk shortening response, matched to its request by index
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkShortenResult {
+
+    private int index;
+    private String status; // "created" or "failed"
+    private ShortenUrlResponse url;
+    private String error;
+
+    public BulkShortenResult() {}
+
+    public static BulkShortenResult created(int index, ShortenUrlResponse url) {
+        BulkShortenResult result = new BulkShortenResult();
+        result.index = index;
+        result.status = "created";
+        result.url = url;
+        return result;
+    }
+
+    public static BulkShortenResult failed(int index, String error) {
+        BulkShortenResult result = new BulkShortenResult();
+        result.index = index;
+        result.status = "failed";
+        result.error = error;
+        return result;
+    }
+
+    // Getters and Setters
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public ShortenUrlResponse getUrl() { return url; }
+    public void setUrl(ShortenUrlResponse url) { this.url = url; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
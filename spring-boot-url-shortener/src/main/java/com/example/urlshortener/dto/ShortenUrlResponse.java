@@ -35,6 +35,21 @@ public class ShortenUrlResponse {
         this.analyticsEnabled = url.getAnalyticsEnabled();
     }
 
+    public ShortenUrlResponse(UrlSummary url, String baseUrl) {
+        this.id = url.id();
+        this.shortCode = url.shortCode();
+        this.shortUrl = baseUrl + "/" + url.shortCode();
+        this.originalUrl = url.originalUrl();
+        this.title = url.title();
+        this.description = url.description();
+        this.createdAt = url.createdAt();
+        this.expiresAt = url.expiresAt();
+        this.clickCount = url.clickCount();
+        this.isCustom = url.isCustom();
+        this.isPasswordProtected = url.isPasswordProtected();
+        this.analyticsEnabled = url.analyticsEnabled();
+    }
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
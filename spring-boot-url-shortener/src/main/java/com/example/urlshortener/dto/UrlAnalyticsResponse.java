@@ -11,6 +11,7 @@ public class UrlAnalyticsResponse {
     private String originalUrl;
     private Long totalClicks;
     private Long uniqueVisitors;
+    private Boolean uniqueVisitorsEstimated; // HyperLogLog estimate rather than an exact count
     private LocalDateTime createdAt;
     private LocalDateTime lastAccessedAt;
     
@@ -57,6 +58,9 @@ public class UrlAnalyticsResponse {
     public Long getUniqueVisitors() { return uniqueVisitors; }
     public void setUniqueVisitors(Long uniqueVisitors) { this.uniqueVisitors = uniqueVisitors; }
 
+    public Boolean getUniqueVisitorsEstimated() { return uniqueVisitorsEstimated; }
+    public void setUniqueVisitorsEstimated(Boolean uniqueVisitorsEstimated) { this.uniqueVisitorsEstimated = uniqueVisitorsEstimated; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,17 @@
+package com.example.urlshortener.dto;
+
+import java.time.LocalDateTime;
+
+// Listing projection: only the columns ShortenUrlResponse needs, no entity loaded
+public record UrlSummary(Long id,
+                         String shortCode,
+                         String originalUrl,
+                         String title,
+                         String description,
+                         LocalDateTime createdAt,
+                         LocalDateTime expiresAt,
+                         Long clickCount,
+                         Boolean isCustom,
+                         Boolean isPasswordProtected,
+                         Boolean analyticsEnabled) {
+}
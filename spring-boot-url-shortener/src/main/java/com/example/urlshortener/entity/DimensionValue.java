@@ -0,0 +1,38 @@
+package com.example.urlshortener.entity;
+
+import jakarta.persistence.*;
+
+// Dictionary entry for a low-cardinality analytics string; url_analytics rows store the id
+@Entity
+@Table(name = "dimension_values", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_dimension_value", columnNames = {"kind", "dimensionValue"})
+})
+public class DimensionValue {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Kind kind;
+
+    @Column(nullable = false, length = 500)
+    private String dimensionValue;
+
+    public DimensionValue() {}
+
+    // Getters and Setters
+    public Integer getId() { return id; }
+    public void setId(Integer id) { this.id = id; }
+
+    public Kind getKind() { return kind; }
+    public void setKind(Kind kind) { this.kind = kind; }
+
+    public String getDimensionValue() { return dimensionValue; }
+    public void setDimensionValue(String dimensionValue) { this.dimensionValue = dimensionValue; }
+
+    public enum Kind {
+        BROWSER, OPERATING_SYSTEM, DEVICE, COUNTRY, LANGUAGE
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.urlshortener.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * High-water mark of a short code counter. Nodes lease ranges of counter
+ * values by advancing {@code nextValue}.
+ */
+@Entity
+@Table(name = "short_code_segments")
+public class ShortCodeSegment {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(nullable = false)
+    private Long nextValue = 0L;
+
+    public ShortCodeSegment() {}
+
+    public ShortCodeSegment(String name) {
+        this.name = name;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Long getNextValue() { return nextValue; }
+    public void setNextValue(Long nextValue) { this.nextValue = nextValue; }
+}
@@ -7,13 +7,17 @@ import java.time.LocalDateTime;
 @Table(name = "urls", indexes = {
     @Index(name = "idx_short_code", columnList = "shortCode", unique = true),
     @Index(name = "idx_original_url", columnList = "originalUrl"),
-    @Index(name = "idx_created_by", columnList = "createdBy"),
-    @Index(name = "idx_expires_at", columnList = "expiresAt")
+    @Index(name = "idx_created_by_active_created_at", columnList = "createdBy, isActive, createdAt, id"),
+    @Index(name = "idx_created_at", columnList = "createdAt, id"),
+    @Index(name = "idx_expires_at", columnList = "expiresAt"),
+    // Most clicked active URLs, read in index order instead of sorting every active URL
+    @Index(name = "idx_active_click_count", columnList = "isActive, clickCount DESC, id DESC")
 })
 public class Url {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "urls_seq")
+    @SequenceGenerator(name = "urls_seq", sequenceName = "urls_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, unique = true, length = 10)
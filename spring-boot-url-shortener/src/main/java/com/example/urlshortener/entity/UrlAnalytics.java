@@ -1,58 +1,50 @@
 package com.example.urlshortener.entity;
 
-import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
-@Entity
-@Table(name = "url_analytics", indexes = {
-    @Index(name = "idx_url_id", columnList = "urlId"),
-    @Index(name = "idx_accessed_at", columnList = "accessedAt"),
-    @Index(name = "idx_ip_address", columnList = "ipAddress"),
-    @Index(name = "idx_country", columnList = "country")
-})
+// A raw click; rows live in time-partitioned url_analytics tables (see UrlAnalyticsPartitions)
 public class UrlAnalytics {
     
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // From the partition table's own identity column: unique within that partition only
     private Long id;
     
-    @Column(nullable = false)
     private Long urlId;
     
-    @Column(nullable = false)
     private LocalDateTime accessedAt;
     
-    @Column(length = 45)
     private String ipAddress;
     
-    @Column(length = 500)
+    // Stored as-is: too many distinct values for the dictionary
     private String userAgent;
     
-    @Column(length = 100)
+    private String city;
+    
+    private String referer;
+    
+    // Low-cardinality strings are stored as dimension_values ids (see DimensionDictionaryService)
+    private Integer browserId;
+    
+    private Integer operatingSystemId;
+    
+    private Integer deviceId;
+    
+    private Integer countryId;
+    
+    private Integer languageId;
+    
+    // Decoded values: set during enrichment, or filled in by the dictionary when read back; not stored
     private String browser;
     
-    @Column(length = 100)
     private String operatingSystem;
     
-    @Column(length = 100)
     private String device;
     
-    @Column(length = 100)
     private String country;
     
-    @Column(length = 100)
-    private String city;
-    
-    @Column(length = 500)
-    private String referer;
-    
-    @Column(length = 100)
     private String language;
     
-    @Column
     private Double latitude;
     
-    @Column
     private Double longitude;
 
     public UrlAnalytics() {
@@ -78,6 +70,21 @@ public class UrlAnalytics {
     public String getIpAddress() { return ipAddress; }
     public void setIpAddress(String ipAddress) { this.ipAddress = ipAddress; }
 
+    public Integer getBrowserId() { return browserId; }
+    public void setBrowserId(Integer browserId) { this.browserId = browserId; }
+
+    public Integer getOperatingSystemId() { return operatingSystemId; }
+    public void setOperatingSystemId(Integer operatingSystemId) { this.operatingSystemId = operatingSystemId; }
+
+    public Integer getDeviceId() { return deviceId; }
+    public void setDeviceId(Integer deviceId) { this.deviceId = deviceId; }
+
+    public Integer getCountryId() { return countryId; }
+    public void setCountryId(Integer countryId) { this.countryId = countryId; }
+
+    public Integer getLanguageId() { return languageId; }
+    public void setLanguageId(Integer languageId) { this.languageId = languageId; }
+
     public String getUserAgent() { return userAgent; }
     public void setUserAgent(String userAgent) { this.userAgent = userAgent; }
 
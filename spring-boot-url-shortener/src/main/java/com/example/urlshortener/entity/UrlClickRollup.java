@@ -0,0 +1,85 @@
+package com.example.urlshortener.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "url_click_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_rollup_bucket",
+            columnNames = {"urlId", "granularity", "bucketStart", "dimension", "dimensionValue"})
+}, indexes = {
+    @Index(name = "idx_rollup_url_granularity", columnList = "urlId, granularity, dimension, bucketStart")
+})
+public class UrlClickRollup {
+
+    // Bucket start used for all-time counters
+    public static final LocalDateTime ALL_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long urlId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularity granularity;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Dimension dimension;
+
+    @Column(nullable = false, length = 500)
+    private String dimensionValue; // Empty for TOTAL
+
+    @Column(nullable = false)
+    private Long clicks = 0L;
+
+    public UrlClickRollup() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUrlId() { return urlId; }
+    public void setUrlId(Long urlId) { this.urlId = urlId; }
+
+    public Granularity getGranularity() { return granularity; }
+    public void setGranularity(Granularity granularity) { this.granularity = granularity; }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public Dimension getDimension() { return dimension; }
+    public void setDimension(Dimension dimension) { this.dimension = dimension; }
+
+    public String getDimensionValue() { return dimensionValue; }
+    public void setDimensionValue(String dimensionValue) { this.dimensionValue = dimensionValue; }
+
+    public Long getClicks() { return clicks; }
+    public void setClicks(Long clicks) { this.clicks = clicks; }
+
+    public enum Granularity {
+        HOUR, DAY, ALL
+    }
+
+    public enum Dimension {
+        TOTAL, COUNTRY, BROWSER, OPERATING_SYSTEM, DEVICE, REFERER
+    }
+
+    @Override
+    public String toString() {
+        return "UrlClickRollup{" +
+                "urlId=" + urlId +
+                ", granularity=" + granularity +
+                ", bucketStart=" + bucketStart +
+                ", dimension=" + dimension +
+                ", dimensionValue='" + dimensionValue + '\'' +
+                ", clicks=" + clicks +
+                '}';
+    }
+}
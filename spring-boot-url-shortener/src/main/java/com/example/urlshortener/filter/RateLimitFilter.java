@@ -0,0 +1,174 @@
+package com.example.urlshortener.filter;
+
+import com.example.urlshortener.config.RateLimitPolicyProperties;
+import com.example.urlshortener.service.RateLimitingService;
+import com.example.urlshortener.util.ClientIpResolver;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Applies the configured per-route rate limit policies before Spring Security
+ * and MVC dispatch run, so rejected requests cost a path match and a bucket
+ * lookup. The first matching policy wins; unmatched requests pass through.
+ * Policies keyed by user are only matched here: the token is taken by
+ * {@link UserRateLimitFilter} once the security chain has authenticated the request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    static final String USER_POLICY_ATTRIBUTE = RateLimitFilter.class.getName() + ".userPolicy";
+
+    @Autowired
+    private RateLimitingService rateLimitingService;
+
+    @Autowired
+    private RateLimitPolicyProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
+    private final List<RoutePolicy> policies = new ArrayList<>();
+
+    private byte[] rejectedBody;
+
+    @PostConstruct
+    public void init() {
+        PathPatternParser parser = new PathPatternParser();
+        for (RateLimitPolicyProperties.Policy policy : properties.getPolicies()) {
+            List<PathPattern> patterns = policy.getPaths().stream().map(parser::parse).toList();
+            List<PathPattern> excludePatterns = policy.getExcludePaths().stream().map(parser::parse).toList();
+            Set<String> methods = policy.getMethods().stream().map(String::toUpperCase).collect(Collectors.toSet());
+            BucketConfiguration configuration = rateLimitingService.createConfiguration(
+                    policy.getRequestsPerMinute(), policy.getRequestsPerHour());
+
+            policies.add(new RoutePolicy(policy.getName() + ":", methods, patterns, excludePatterns,
+                    "user".equalsIgnoreCase(policy.getKey()), configuration,
+                    meterRegistry.counter("urlshortener.ratelimit.requests", "policy", policy.getName(), "outcome", "allowed"),
+                    meterRegistry.counter("urlshortener.ratelimit.requests", "policy", policy.getName(), "outcome", "rejected")));
+        }
+
+        try {
+            rejectedBody = objectMapper.writeValueAsBytes(Map.of("error", "Rate limit exceeded. Please try again later."));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        logger.info("Rate limit filter loaded {} route policies", policies.size());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return policies.isEmpty() || !rateLimitingService.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RoutePolicy policy = findPolicy(request);
+        if (policy == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (policy.perUser()) {
+            request.setAttribute(USER_POLICY_ATTRIBUTE, policy);
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (tryConsume(policy, clientIpResolver.getClientIpAddress(request), response)) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Takes a token for the subject, or writes the 429 response.
+     *
+     * @return true if the request may proceed
+     */
+    boolean tryConsume(RoutePolicy policy, String subject, HttpServletResponse response) throws IOException {
+        ConsumptionProbe probe = rateLimitingService.tryConsume(policy.keyPrefix() + subject, policy.configuration());
+        if (probe.isConsumed()) {
+            policy.allowed().increment();
+            return true;
+        }
+
+        policy.rejected().increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill() + 999_999_999L));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(rejectedBody.length);
+        response.getOutputStream().write(rejectedBody);
+        return false;
+    }
+
+    private RoutePolicy findPolicy(HttpServletRequest request) {
+        String method = request.getMethod();
+        PathContainer path = null;
+        for (RoutePolicy policy : policies) {
+            if (!policy.methods().isEmpty() && !policy.methods().contains(method)) {
+                continue;
+            }
+            if (path == null) {
+                path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+            }
+            if (matchesAny(policy.patterns(), path) && !matchesAny(policy.excludePatterns(), path)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matchesAny(List<PathPattern> patterns, PathContainer path) {
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    record RoutePolicy(String keyPrefix, Set<String> methods, List<PathPattern> patterns,
+                       List<PathPattern> excludePatterns, boolean perUser,
+                       BucketConfiguration configuration, Counter allowed, Counter rejected) {
+    }
+}
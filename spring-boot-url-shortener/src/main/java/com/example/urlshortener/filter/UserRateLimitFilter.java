@@ -0,0 +1,57 @@
+package com.example.urlshortener.filter;
+
+import com.example.urlshortener.util.ClientIpResolver;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Second stage of {@link RateLimitFilter} for policies keyed by user. Runs
+ * inside the security chain's scope, so an authenticated request is charged
+ * to its user wherever it comes from; anonymous requests fall back to the
+ * client IP.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 10)
+public class UserRateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!(request.getAttribute(RateLimitFilter.USER_POLICY_ATTRIBUTE) instanceof RateLimitFilter.RoutePolicy policy)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (rateLimitFilter.tryConsume(policy, subject(request), response)) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    // Prefixed so a user name can never share a bucket with an IP address
+    private String subject(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + clientIpResolver.getClientIpAddress(request);
+    }
+}
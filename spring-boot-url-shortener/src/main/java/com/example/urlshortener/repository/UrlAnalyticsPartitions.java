@@ -0,0 +1,293 @@
+package com.example.urlshortener.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Catalog of the time-partitioned click tables. Every day (or week) of clicks
+ * is stored in its own table, url_analytics_d20240131 or url_analytics_w20240129,
+ * so retention drops whole tables instead of deleting rows, and range queries
+ * only touch the tables overlapping the range. Plain tables keep this working
+ * the same on H2 and PostgreSQL.
+ * <p>
+ * Partitions are created ahead of time by {@link #createAhead()} on startup and
+ * from the maintenance job; writers only look them up, so no DDL runs inside a
+ * write transaction. A partition that has left the retention window is skipped
+ * by every lookup on every node, whatever its catalog still holds, and
+ * {@link #dropExpired()} only drops the table a day later.
+ * <p>
+ * Each table has its own identity column, so row ids are unique within a
+ * partition only; (table, id) identifies a row.
+ */
+@Repository
+public class UrlAnalyticsPartitions {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlAnalyticsPartitions.class);
+
+    public static final String COLUMNS = "url_id, accessed_at, ip_address, user_agent, browser_id, " +
+            "operating_system_id, device_id, country_id, city, referer, language_id, latitude, longitude";
+
+    private static final String TABLE_PREFIX = "url_analytics_";
+    private static final Pattern TABLE_NAME = Pattern.compile("url_analytics_([dw])(\\d{8})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    // Time between a partition leaving the retention window and its table being dropped
+    private static final int DROP_DELAY_DAYS = 1;
+
+    private static final String LIST_TABLES_SQL =
+            "SELECT table_name FROM information_schema.tables " +
+            "WHERE table_schema = CURRENT_SCHEMA AND LOWER(table_name) LIKE 'url_analytics_%'";
+
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS %s (" +
+            "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "url_id BIGINT NOT NULL, " +
+            "accessed_at TIMESTAMP NOT NULL, " +
+            "ip_address VARCHAR(45), " +
+            "user_agent VARCHAR(500), browser_id INTEGER, operating_system_id INTEGER, device_id INTEGER, " +
+            "country_id INTEGER, city VARCHAR(100), referer VARCHAR(500), language_id INTEGER, " +
+            "latitude DOUBLE PRECISION, longitude DOUBLE PRECISION)";
+
+    private static final String CREATE_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS %s_url_accessed ON %s (url_id, accessed_at)";
+
+    // Tables written before partitioning; the dictionary backfill has to run first
+    private static final String LEGACY_TABLE = "url_analytics";
+
+    private static final String LEGACY_TABLE_EXISTS_SQL =
+            "SELECT COUNT(*) FROM information_schema.tables " +
+            "WHERE table_schema = CURRENT_SCHEMA AND LOWER(table_name) = '" + LEGACY_TABLE + "'";
+
+    public enum Period { DAY, WEEK }
+
+    public record Partition(String table, LocalDateTime start, LocalDateTime end) {
+
+        public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return (to == null || start.isBefore(to)) && (from == null || end.isAfter(from));
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${url-shortener.analytics.partitions.period}")
+    private Period period;
+
+    @Value("${url-shortener.analytics.partitions.create-ahead}")
+    private int createAhead;
+
+    @Value("${url-shortener.analytics.retention-days}")
+    private int retentionDays;
+
+    // Keyed by partition start
+    private final ConcurrentSkipListMap<LocalDateTime, Partition> partitions = new ConcurrentSkipListMap<>();
+    private final ReentrantLock createLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        refresh();
+        createAhead();
+        logger.info("Found {} analytics partitions ({} partitioning)", partitions.size(), period.name().toLowerCase());
+    }
+
+    // Picks up partitions created or dropped by other nodes
+    public void refresh() {
+        Map<LocalDateTime, Partition> found = new ConcurrentSkipListMap<>();
+        for (String name : jdbcTemplate.queryForList(LIST_TABLES_SQL, String.class)) {
+            Partition partition = parse(name.toLowerCase());
+            if (partition != null) {
+                found.put(partition.start(), partition);
+            }
+        }
+        partitions.keySet().retainAll(found.keySet());
+        partitions.putAll(found);
+    }
+
+    // Creates the current partition and the next few; the only place partitions are created
+    public void createAhead() {
+        LocalDateTime start = periodStart(LocalDateTime.now());
+        for (int i = 0; i <= createAhead; i++) {
+            start = create(start).end();
+        }
+    }
+
+    /**
+     * Partition holding clicks at the given time, or null if it has not been
+     * created or has left the retention window. Never creates a partition.
+     */
+    public Partition partitionFor(LocalDateTime accessedAt) {
+        Map.Entry<LocalDateTime, Partition> entry = partitions.floorEntry(accessedAt);
+        if (entry != null && entry.getValue().end().isAfter(accessedAt)
+                && entry.getValue().end().isAfter(retainedFrom())) {
+            return entry.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Partitions within retention that can hold clicks in [from, to), oldest first. Null bounds are open.
+     */
+    public List<Partition> overlapping(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime retainedFrom = retainedFrom();
+        List<Partition> result = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            if (partition.end().isAfter(retainedFrom) && partition.overlaps(from, to)) {
+                result.add(partition);
+            }
+        }
+        return result;
+    }
+
+    // Partitions within retention, oldest first
+    public List<Partition> all() {
+        return overlapping(null, null);
+    }
+
+    /**
+     * Drops the partitions that left the retention window more than a day ago.
+     * Lookups stopped using them when they left it, so neither a query in
+     * flight nor a node that has not refreshed its catalog can hit a dropped table.
+     *
+     * @return number of partitions dropped
+     */
+    public int dropExpired() {
+        LocalDateTime cutoff = retainedFrom().minusDays(DROP_DELAY_DAYS);
+        int dropped = 0;
+        NavigableMap<LocalDateTime, Partition> candidates = partitions.headMap(cutoff, false);
+        for (Partition partition : new ArrayList<>(candidates.values())) {
+            if (partition.end().isAfter(cutoff)) {
+                continue;
+            }
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.table());
+            partitions.remove(partition.start());
+            dropped++;
+            logger.info("Dropped analytics partition {}", partition.table());
+        }
+        return dropped;
+    }
+
+    // Whether the unpartitioned url_analytics table of older releases is still there
+    public boolean hasLegacyTable() {
+        Integer tables = jdbcTemplate.queryForObject(LEGACY_TABLE_EXISTS_SQL, Integer.class);
+        return tables != null && tables > 0;
+    }
+
+    /**
+     * Moves the rows of the unpartitioned url_analytics table into partitions,
+     * one partition per transaction, then drops the table. The table needs the
+     * id columns, so DimensionDictionaryService#migrateLegacyColumns has to run first.
+     *
+     * @return number of rows moved
+     */
+    public long moveLegacyRows() {
+        if (!hasLegacyTable()) {
+            logger.info("No unpartitioned analytics table found, nothing to move");
+            return 0;
+        }
+        LocalDateTime[] range = jdbcTemplate.queryForObject(
+                "SELECT MIN(accessed_at), MAX(accessed_at) FROM " + LEGACY_TABLE,
+                (rs, rowNum) -> new LocalDateTime[] {
+                    rs.getObject(1, LocalDateTime.class), rs.getObject(2, LocalDateTime.class)
+                });
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long moved = 0;
+        if (range[0] != null) {
+            LocalDateTime time = range[0];
+            while (!time.isAfter(range[1])) {
+                Partition partition = create(periodStart(time));
+                Integer rows = transactionTemplate.execute(status -> {
+                    int inserted = jdbcTemplate.update(
+                            "INSERT INTO " + partition.table() + " (" + COLUMNS + ") SELECT " + COLUMNS +
+                            " FROM " + LEGACY_TABLE + " WHERE accessed_at >= ? AND accessed_at < ?",
+                            partition.start(), partition.end());
+                    jdbcTemplate.update("DELETE FROM " + LEGACY_TABLE + " WHERE accessed_at >= ? AND accessed_at < ?",
+                            partition.start(), partition.end());
+                    return inserted;
+                });
+                moved += rows != null ? rows : 0;
+                time = partition.end();
+            }
+        }
+
+        jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+        logger.info("Moved {} analytics rows into partitions and dropped the unpartitioned table", moved);
+        return moved;
+    }
+
+    private Partition create(LocalDateTime start) {
+        createLock.lock();
+        try {
+            Partition existing = partitions.get(start);
+            if (existing != null) {
+                return existing;
+            }
+
+            Partition partition = new Partition(tableName(period, start.toLocalDate()), start, periodEnd(start));
+            // IF NOT EXISTS: another node may have created it already
+            jdbcTemplate.execute(String.format(CREATE_TABLE_SQL, partition.table()));
+            jdbcTemplate.execute(String.format(CREATE_INDEX_SQL, partition.table(), partition.table()));
+            partitions.put(start, partition);
+            logger.debug("Created analytics partition {}", partition.table());
+            return partition;
+        } finally {
+            createLock.unlock();
+        }
+    }
+
+    // Start of the retention window; partitions ending at or before it are expired
+    private LocalDateTime retainedFrom() {
+        return LocalDateTime.now().minusDays(retentionDays);
+    }
+
+    private LocalDateTime periodStart(LocalDateTime time) {
+        LocalDate date = time.toLocalDate();
+        if (period == Period.WEEK) {
+            date = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        return date.atStartOfDay();
+    }
+
+    private LocalDateTime periodEnd(LocalDateTime start) {
+        return period == Period.WEEK ? start.plusWeeks(1) : start.plusDays(1);
+    }
+
+    private static String tableName(Period period, LocalDate start) {
+        return TABLE_PREFIX + (period == Period.WEEK ? 'w' : 'd') + start.format(SUFFIX);
+    }
+
+    // The period is part of the name, so partitions stay readable after the setting changes
+    private static Partition parse(String table) {
+        Matcher matcher = TABLE_NAME.matcher(table);
+        if (!matcher.matches()) {
+            return null;
+        }
+        LocalDateTime start = LocalDate.parse(matcher.group(2), SUFFIX).atStartOfDay();
+        LocalDateTime end = "w".equals(matcher.group(1)) ? start.plusWeeks(1) : start.plusDays(1);
+        return new Partition(table, start, end);
+    }
+}
@@ -1,63 +1,189 @@
 package com.example.urlshortener.repository;
 
 import com.example.urlshortener.entity.UrlAnalytics;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import com.example.urlshortener.repository.UrlAnalyticsPartitions.Partition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Raw clicks stored across the partitions of {@link UrlAnalyticsPartitions}.
+ * Queries with a time range only read the partitions overlapping it; the
+ * bounds are half-open, [from, to), and a null bound is unbounded.
+ */
 @Repository
-public interface UrlAnalyticsRepository extends JpaRepository<UrlAnalytics, Long> {
-    
-    List<UrlAnalytics> findByUrlId(Long urlId);
-    
-    Page<UrlAnalytics> findByUrlId(Long urlId, Pageable pageable);
-    
-    List<UrlAnalytics> findByUrlIdAndAccessedAtBetween(Long urlId, LocalDateTime startDate, LocalDateTime endDate);
-    
-    @Query("SELECT COUNT(ua) FROM UrlAnalytics ua WHERE ua.urlId = :urlId")
-    Long countByUrlId(@Param("urlId") Long urlId);
-    
-    @Query("SELECT COUNT(ua) FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.accessedAt >= :startDate")
-    Long countByUrlIdAndAccessedAtAfter(@Param("urlId") Long urlId, @Param("startDate") LocalDateTime startDate);
-    
-    @Query("SELECT ua.country, COUNT(ua) as count FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.country IS NOT NULL GROUP BY ua.country ORDER BY count DESC")
-    List<Object[]> getClicksByCountry(@Param("urlId") Long urlId);
-    
-    @Query("SELECT ua.browser, COUNT(ua) as count FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.browser IS NOT NULL GROUP BY ua.browser ORDER BY count DESC")
-    List<Object[]> getClicksByBrowser(@Param("urlId") Long urlId);
-    
-    @Query("SELECT ua.operatingSystem, COUNT(ua) as count FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.operatingSystem IS NOT NULL GROUP BY ua.operatingSystem ORDER BY count DESC")
-    List<Object[]> getClicksByOperatingSystem(@Param("urlId") Long urlId);
-    
-    @Query("SELECT ua.device, COUNT(ua) as count FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.device IS NOT NULL GROUP BY ua.device ORDER BY count DESC")
-    List<Object[]> getClicksByDevice(@Param("urlId") Long urlId);
-    
-    @Query("SELECT DATE(ua.accessedAt) as date, COUNT(ua) as count FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.accessedAt >= :startDate GROUP BY DATE(ua.accessedAt) ORDER BY date")
-    List<Object[]> getDailyClickStats(@Param("urlId") Long urlId, @Param("startDate") LocalDateTime startDate);
-    
-    @Query("SELECT HOUR(ua.accessedAt) as hour, COUNT(ua) as count FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.accessedAt >= :startDate GROUP BY HOUR(ua.accessedAt) ORDER BY hour")
-    List<Object[]> getHourlyClickStats(@Param("urlId") Long urlId, @Param("startDate") LocalDateTime startDate);
-    
-    @Query("SELECT ua.referer, COUNT(ua) as count FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.referer IS NOT NULL AND ua.referer != '' GROUP BY ua.referer ORDER BY count DESC")
-    List<Object[]> getClicksByReferer(@Param("urlId") Long urlId);
-    
-    @Query("SELECT COUNT(DISTINCT ua.ipAddress) FROM UrlAnalytics ua WHERE ua.urlId = :urlId")
-    Long getUniqueVisitors(@Param("urlId") Long urlId);
-    
-    @Query("SELECT COUNT(DISTINCT ua.ipAddress) FROM UrlAnalytics ua WHERE ua.urlId = :urlId AND ua.accessedAt >= :startDate")
-    Long getUniqueVisitorsAfter(@Param("urlId") Long urlId, @Param("startDate") LocalDateTime startDate);
-    
-    @Query("SELECT ua FROM UrlAnalytics ua WHERE ua.urlId = :urlId ORDER BY ua.accessedAt DESC")
-    Page<UrlAnalytics> getRecentAnalytics(@Param("urlId") Long urlId, Pageable pageable);
-    
-    void deleteByUrlId(Long urlId);
-    
-    @Query("DELETE FROM UrlAnalytics ua WHERE ua.accessedAt < :cutoffDate")
-    void deleteOldAnalytics(@Param("cutoffDate") LocalDateTime cutoffDate);
-}
\ No newline at end of file
+public class UrlAnalyticsRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlAnalyticsRepository.class);
+
+    private static final String SELECT_COLUMNS = "id, " + UrlAnalyticsPartitions.COLUMNS;
+
+    private static final RowMapper<UrlAnalytics> ROW_MAPPER = (rs, rowNum) -> {
+        UrlAnalytics analytics = new UrlAnalytics(rs.getLong("url_id"), rs.getString("ip_address"));
+        analytics.setId(rs.getLong("id"));
+        analytics.setAccessedAt(rs.getTimestamp("accessed_at").toLocalDateTime());
+        analytics.setUserAgent(rs.getString("user_agent"));
+        analytics.setBrowserId(rs.getObject("browser_id", Integer.class));
+        analytics.setOperatingSystemId(rs.getObject("operating_system_id", Integer.class));
+        analytics.setDeviceId(rs.getObject("device_id", Integer.class));
+        analytics.setCountryId(rs.getObject("country_id", Integer.class));
+        analytics.setCity(rs.getString("city"));
+        analytics.setReferer(rs.getString("referer"));
+        analytics.setLanguageId(rs.getObject("language_id", Integer.class));
+        analytics.setLatitude(rs.getObject("latitude", Double.class));
+        analytics.setLongitude(rs.getObject("longitude", Double.class));
+        return analytics;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UrlAnalyticsPartitions partitions;
+
+    /**
+     * Batched inserts, one batch per partition the clicks fall into. Clicks
+     * without a partition are skipped.
+     *
+     * @return the clicks actually written
+     */
+    public List<UrlAnalytics> saveAll(List<UrlAnalytics> batch) {
+        Map<Partition, List<UrlAnalytics>> byPartition = new LinkedHashMap<>();
+        List<UrlAnalytics> written = new ArrayList<>(batch.size());
+        int unpartitioned = 0;
+        for (UrlAnalytics analytics : batch) {
+            Partition partition = partitions.partitionFor(analytics.getAccessedAt());
+            if (partition == null) {
+                unpartitioned++;
+                continue;
+            }
+            byPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(analytics);
+        }
+        if (unpartitioned > 0) {
+            // Partitions are created ahead by the maintenance job, never inside the write transaction
+            logger.warn("Skipped {} clicks outside the created partitions; is partition maintenance running?",
+                    unpartitioned);
+        }
+
+        for (Map.Entry<Partition, List<UrlAnalytics>> entry : byPartition.entrySet()) {
+            String sql = "INSERT INTO " + entry.getKey().table() + " (" + UrlAnalyticsPartitions.COLUMNS + ") " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            jdbcTemplate.batchUpdate(sql, entry.getValue(), entry.getValue().size(), this::bind);
+            written.addAll(entry.getValue());
+        }
+        return written;
+    }
+
+    private void bind(PreparedStatement statement, UrlAnalytics analytics) throws SQLException {
+        statement.setLong(1, analytics.getUrlId());
+        statement.setTimestamp(2, Timestamp.valueOf(analytics.getAccessedAt()));
+        statement.setString(3, analytics.getIpAddress());
+        statement.setString(4, analytics.getUserAgent());
+        statement.setObject(5, analytics.getBrowserId(), Types.INTEGER);
+        statement.setObject(6, analytics.getOperatingSystemId(), Types.INTEGER);
+        statement.setObject(7, analytics.getDeviceId(), Types.INTEGER);
+        statement.setObject(8, analytics.getCountryId(), Types.INTEGER);
+        statement.setString(9, analytics.getCity());
+        statement.setString(10, analytics.getReferer());
+        statement.setObject(11, analytics.getLanguageId(), Types.INTEGER);
+        statement.setObject(12, analytics.getLatitude(), Types.DOUBLE);
+        statement.setObject(13, analytics.getLongitude(), Types.DOUBLE);
+    }
+
+    // Newest partitions first, stopping as soon as enough rows were found
+    public List<UrlAnalytics> findRecent(Long urlId, int limit) {
+        List<UrlAnalytics> result = new ArrayList<>(limit);
+        List<Partition> all = partitions.all();
+        for (int i = all.size() - 1; i >= 0 && result.size() < limit; i--) {
+            result.addAll(jdbcTemplate.query(
+                    "SELECT " + SELECT_COLUMNS + " FROM " + all.get(i).table() +
+                    " WHERE url_id = ? ORDER BY accessed_at DESC LIMIT ?",
+                    ROW_MAPPER, urlId, limit - result.size()));
+        }
+        return result;
+    }
+
+    public List<UrlAnalytics> findByUrlIdAndAccessedAtBetween(Long urlId, LocalDateTime from, LocalDateTime to) {
+        List<Object> args = new ArrayList<>();
+        String sql = unionAll("SELECT " + SELECT_COLUMNS, urlId, from, to, args);
+        if (sql == null) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT * FROM (" + sql + ") t ORDER BY accessed_at", ROW_MAPPER, args.toArray());
+    }
+
+    public long countByUrlId(Long urlId) {
+        return countByUrlIdAndAccessedAtBetween(urlId, null, null);
+    }
+
+    public long countByUrlIdAndAccessedAtAfter(Long urlId, LocalDateTime from) {
+        return countByUrlIdAndAccessedAtBetween(urlId, from, null);
+    }
+
+    public long countByUrlIdAndAccessedAtBetween(Long urlId, LocalDateTime from, LocalDateTime to) {
+        List<Object> args = new ArrayList<>();
+        String sql = unionAll("SELECT COUNT(*) AS clicks", urlId, from, to, args);
+        if (sql == null) {
+            return 0;
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT SUM(clicks) FROM (" + sql + ") t", Long.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    public long getUniqueVisitorsBetween(Long urlId, LocalDateTime from, LocalDateTime to) {
+        List<Object> args = new ArrayList<>();
+        String sql = unionAll("SELECT ip_address", urlId, from, to, args);
+        if (sql == null) {
+            return 0;
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT ip_address) FROM (" + sql + ") t",
+                Long.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    public void deleteByUrlId(Long urlId) {
+        for (Partition partition : partitions.all()) {
+            jdbcTemplate.update("DELETE FROM " + partition.table() + " WHERE url_id = ?", urlId);
+        }
+    }
+
+    /**
+     * Builds "select FROM p1 WHERE ... UNION ALL select FROM p2 WHERE ..." over
+     * the partitions overlapping the range and appends the bind values to args.
+     *
+     * @return the query, or null if no partition can hold matching rows
+     */
+    private String unionAll(String select, Long urlId, LocalDateTime from, LocalDateTime to, List<Object> args) {
+        StringBuilder sql = new StringBuilder();
+        for (Partition partition : partitions.overlapping(from, to)) {
+            if (sql.length() > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append(select).append(" FROM ").append(partition.table()).append(" WHERE url_id = ?");
+            args.add(urlId);
+            // Bounds a partition lies entirely within are left out
+            if (from != null && partition.start().isBefore(from)) {
+                sql.append(" AND accessed_at >= ?");
+                args.add(Timestamp.valueOf(from));
+            }
+            if (to != null && partition.end().isAfter(to)) {
+                sql.append(" AND accessed_at < ?");
+                args.add(Timestamp.valueOf(to));
+            }
+        }
+        return sql.length() > 0 ? sql.toString() : null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.urlshortener.repository;
+
+import com.example.urlshortener.entity.UrlClickRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UrlClickRollupRepository extends JpaRepository<UrlClickRollup, Long> {
+
+    @Query("SELECT r FROM UrlClickRollup r WHERE r.urlId = :urlId AND r.granularity = :granularity " +
+           "AND r.dimension = :dimension AND r.bucketStart >= :since ORDER BY r.bucketStart")
+    List<UrlClickRollup> findBuckets(@Param("urlId") Long urlId,
+                                     @Param("granularity") UrlClickRollup.Granularity granularity,
+                                     @Param("dimension") UrlClickRollup.Dimension dimension,
+                                     @Param("since") LocalDateTime since);
+
+    @Query("SELECT r FROM UrlClickRollup r WHERE r.urlId = :urlId AND r.granularity = :granularity ORDER BY r.clicks DESC")
+    List<UrlClickRollup> findByGranularity(@Param("urlId") Long urlId,
+                                           @Param("granularity") UrlClickRollup.Granularity granularity);
+
+    void deleteByUrlId(Long urlId);
+
+    @Modifying
+    @Query("DELETE FROM UrlClickRollup r WHERE r.granularity IN :granularities AND r.bucketStart < :cutoffDate")
+    int deleteBucketsBefore(@Param("granularities") List<UrlClickRollup.Granularity> granularities,
+                            @Param("cutoffDate") LocalDateTime cutoffDate);
+}
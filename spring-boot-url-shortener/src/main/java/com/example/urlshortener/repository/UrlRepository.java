@@ -1,8 +1,10 @@
 package com.example.urlshortener.repository;
 
+import com.example.urlshortener.dto.UrlSummary;
 import com.example.urlshortener.entity.Url;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -10,22 +12,31 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UrlRepository extends JpaRepository<Url, Long> {
     
+    // Constructor projection for listings; password itself is never selected
+    String SELECT_SUMMARY = "SELECT new com.example.urlshortener.dto.UrlSummary(u.id, u.shortCode, u.originalUrl, " +
+            "u.title, u.description, u.createdAt, u.expiresAt, u.clickCount, u.isCustom, " +
+            "CASE WHEN u.password IS NOT NULL AND u.password <> '' THEN true ELSE false END, u.analyticsEnabled) " +
+            "FROM Url u ";
+    
     Optional<Url> findByShortCode(String shortCode);
     
     Optional<Url> findByShortCodeAndIsActiveTrue(String shortCode);
     
+    // The cached redirect has no password hash; it is only read when a password is submitted
+    @Query("SELECT u.password FROM Url u WHERE u.id = :id")
+    Optional<String> findPasswordById(@Param("id") Long id);
+    
     List<Url> findByCreatedBy(String createdBy);
     
     Page<Url> findByCreatedBy(String createdBy, Pageable pageable);
     
-    List<Url> findByCreatedByAndIsActiveTrue(String createdBy);
-    
     Page<Url> findByCreatedByAndIsActiveTrue(String createdBy, Pageable pageable);
     
     List<Url> findByOriginalUrl(String originalUrl);
@@ -50,6 +61,62 @@ public interface UrlRepository extends JpaRepository<Url, Long> {
     @Query("SELECT u FROM Url u ORDER BY u.createdAt DESC")
     Page<Url> findRecentUrls(Pageable pageable);
     
+    // Offset listings; the caller supplies the sort
+    @Query(value = SELECT_SUMMARY + "WHERE u.createdBy = :createdBy AND u.isActive = true",
+           countQuery = "SELECT COUNT(u) FROM Url u WHERE u.createdBy = :createdBy AND u.isActive = true")
+    Page<UrlSummary> findSummariesByCreatedBy(@Param("createdBy") String createdBy, Pageable pageable);
+    
+    // Slices fetch one extra row to tell whether there is a next page instead of counting
+    @Query(SELECT_SUMMARY + "WHERE u.createdBy = :createdBy AND u.isActive = true")
+    Slice<UrlSummary> findSummarySliceByCreatedBy(@Param("createdBy") String createdBy, Pageable pageable);
+    
+    @Query(value = SELECT_SUMMARY, countQuery = "SELECT COUNT(u) FROM Url u")
+    Page<UrlSummary> findSummaries(Pageable pageable);
+    
+    @Query(SELECT_SUMMARY)
+    Slice<UrlSummary> findSummarySlice(Pageable pageable);
+    
+    // Keyset pages over idx_created_by_active_created_at, newest first, positioned before (createdAt, id)
+    @Query(SELECT_SUMMARY + "WHERE u.createdBy = :createdBy AND u.isActive = true " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    Slice<UrlSummary> findFirstSummariesByCreatedBy(@Param("createdBy") String createdBy, Pageable pageable);
+    
+    @Query(SELECT_SUMMARY + "WHERE u.createdBy = :createdBy AND u.isActive = true " +
+           "AND (u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id)) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    Slice<UrlSummary> findSummariesByCreatedByBefore(@Param("createdBy") String createdBy,
+                                                     @Param("createdAt") LocalDateTime createdAt,
+                                                     @Param("id") Long id,
+                                                     Pageable pageable);
+    
+    // Keyset pages over idx_created_at
+    @Query(SELECT_SUMMARY + "ORDER BY u.createdAt DESC, u.id DESC")
+    Slice<UrlSummary> findFirstSummaries(Pageable pageable);
+    
+    @Query(SELECT_SUMMARY + "WHERE u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    Slice<UrlSummary> findSummariesBefore(@Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id,
+                                          Pageable pageable);
+    
+    @Query(SELECT_SUMMARY + "WHERE u.id IN :ids AND u.isActive = true")
+    List<UrlSummary> findActiveSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Popular listings read idx_active_click_count in order; the constant isActive leads the
+    // ORDER BY only so that databases matching the index prefix literally (H2) skip the sort too
+    String POPULAR_ORDER = "ORDER BY u.isActive, u.clickCount DESC, u.id DESC";
+    
+    @Query(value = SELECT_SUMMARY + "WHERE u.isActive = true " + POPULAR_ORDER,
+           countQuery = "SELECT COUNT(u) FROM Url u WHERE u.isActive = true")
+    Page<UrlSummary> findPopularSummaries(Pageable pageable);
+    
+    @Query(SELECT_SUMMARY + "WHERE u.isActive = true " + POPULAR_ORDER)
+    Slice<UrlSummary> findPopularSummarySlice(Pageable pageable);
+    
+    // Id and click count of the most clicked active URLs, ordered like the listings above
+    @Query("SELECT u.id, u.clickCount FROM Url u WHERE u.isActive = true AND u.clickCount > 0 " + POPULAR_ORDER)
+    List<Object[]> findMostClickedActive(Pageable pageable);
+    
     @Query("SELECT COUNT(u) FROM Url u WHERE u.isActive = true")
     Long countActiveUrls();
     
@@ -67,10 +134,32 @@ public interface UrlRepository extends JpaRepository<Url, Long> {
     @Query("UPDATE Url u SET u.isActive = false WHERE u.expiresAt < :now AND u.isActive = true")
     int deactivateExpiredUrls(@Param("now") LocalDateTime now);
     
+    // Keyset page over idx_expires_at: active URLs expired before now, positioned after (afterExpiresAt, afterId)
+    @Query("SELECT u.id, u.shortCode, u.expiresAt FROM Url u WHERE u.isActive = true AND u.expiresAt < :now " +
+           "AND (u.expiresAt > :afterExpiresAt OR (u.expiresAt = :afterExpiresAt AND u.id > :afterId)) " +
+           "ORDER BY u.expiresAt, u.id")
+    List<Object[]> findExpiredAfter(@Param("now") LocalDateTime now,
+                                    @Param("afterExpiresAt") LocalDateTime afterExpiresAt,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE Url u SET u.isActive = false WHERE u.id IN :ids AND u.isActive = true")
+    int deactivateByIdIn(@Param("ids") Collection<Long> ids);
+    
     boolean existsByShortCode(String shortCode);
     
     boolean existsByShortCodeAndIsActiveTrue(String shortCode);
     
+    @Query("SELECT u.id FROM Url u WHERE u.createdBy = :createdBy")
+    List<Long> findIdsByCreatedBy(@Param("createdBy") String createdBy);
+    
+    @Query("SELECT u.id FROM Url u WHERE u.id IN :ids AND u.createdBy = :createdBy")
+    List<Long> findIdsByIdInAndCreatedBy(@Param("ids") Collection<Long> ids, @Param("createdBy") String createdBy);
+    
+    @Query("SELECT u.shortCode FROM Url u WHERE u.shortCode IN :shortCodes")
+    List<String> findExistingShortCodes(@Param("shortCodes") Collection<String> shortCodes);
+    
     @Query("SELECT u.shortCode FROM Url u WHERE u.shortCode LIKE :prefix%")
     List<String> findShortCodesByPrefix(@Param("prefix") String prefix);
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.cache.CachedRedirect;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Short-lived access grants for password-protected URLs. After a successful
+ * password check the visitor gets an HMAC-signed cookie scoped to the short
+ * code, so repeat visits skip BCrypt. The signature covers a fingerprint of
+ * the stored password hash, so changing or removing the password revokes
+ * outstanding grants.
+ */
+@Service
+public class AccessGrantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessGrantService.class);
+
+    private static final String COOKIE_PREFIX = "access_";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${url-shortener.access-grant.secret}")
+    private String secret;
+
+    @Value("${url-shortener.access-grant.ttl}")
+    private long ttlSeconds;
+
+    @Value("${url-shortener.access-grant.cookie-secure}")
+    private boolean cookieSecure;
+
+    private SecretKeySpec key;
+
+    // Mac instances are not thread-safe and costly to create
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            // Grants then only hold on this node until restart
+            logger.warn("No access grant secret configured, using a random key");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    public String readGrant(HttpServletRequest request, String shortCode) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if ((COOKIE_PREFIX + shortCode).equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    public void issueGrant(HttpServletResponse response, CachedRedirect url) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String token = expiresAt + "." + sign(url, expiresAt);
+
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_PREFIX + url.shortCode(), token)
+                .path("/")
+                .maxAge(Duration.ofSeconds(ttlSeconds))
+                .httpOnly(true)
+                .secure(cookieSecure)
+                .sameSite("Lax")
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    public boolean isValid(String token, CachedRedirect url) {
+        if (token == null || !url.isPasswordProtected()) {
+            return false;
+        }
+
+        int separator = token.indexOf('.');
+        if (separator <= 0) {
+            return false;
+        }
+
+        long expiresAt;
+        try {
+            expiresAt = Long.parseLong(token.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (expiresAt < System.currentTimeMillis() / 1000) {
+            return false;
+        }
+
+        byte[] expected = sign(url, expiresAt).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    private String sign(CachedRedirect url, long expiresAt) {
+        String payload = url.shortCode() + "|" + expiresAt + "|" + Long.toHexString(url.passwordFingerprint());
+        byte[] signature = macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + ALGORITHM, e);
+        }
+    }
+}
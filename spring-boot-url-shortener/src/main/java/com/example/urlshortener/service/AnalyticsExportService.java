@@ -0,0 +1,262 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.repository.UrlAnalyticsPartitions;
+import com.example.urlshortener.repository.UrlRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams raw click rows straight from a forward-only JDBC cursor to an output
+ * stream as CSV or NDJSON. Rows are written as they are fetched, so memory use
+ * does not depend on how many rows are exported.
+ */
+@Service
+public class AnalyticsExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsExportService.class);
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String[] COLUMNS = {
+        "url_id", "accessed_at", "ip_address", "user_agent", "referer", "country", "city",
+        "browser", "operating_system", "device", "language", "latitude", "longitude"
+    };
+
+    // Low-cardinality dimensions are stored as dictionary ids and decoded while writing
+    private static final Set<String> DICTIONARY_COLUMNS = Set.of(
+        "country", "browser", "operating_system", "device", "language"
+    );
+
+    private static final boolean[] DECODED = new boolean[COLUMNS.length];
+
+    private static final String EXPORT_SQL;
+
+    static {
+        String[] selected = new String[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            DECODED[i] = DICTIONARY_COLUMNS.contains(COLUMNS[i]);
+            selected[i] = DECODED[i] ? COLUMNS[i] + "_id" : COLUMNS[i];
+        }
+        EXPORT_SQL = "SELECT " + String.join(", ", selected) + " FROM %s " +
+            "WHERE url_id = ? AND accessed_at >= ? AND accessed_at < ? ORDER BY accessed_at";
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UrlAnalyticsPartitions partitions;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DimensionDictionaryService dimensionDictionary;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        // Some drivers (PostgreSQL) only honour the fetch size inside a transaction
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Resolves the URLs to export: the requested ones, which must all belong to
+     * the user, or every URL the user created.
+     */
+    public List<Long> resolveUrlIds(List<Long> requestedIds, String createdBy) {
+        if (requestedIds == null || requestedIds.isEmpty()) {
+            return urlRepository.findIdsByCreatedBy(createdBy);
+        }
+
+        Set<Long> owned = new HashSet<>(urlRepository.findIdsByIdInAndCreatedBy(requestedIds, createdBy));
+        for (Long urlId : requestedIds) {
+            if (!owned.contains(urlId)) {
+                throw new IllegalArgumentException("Unauthorized to export analytics for URL ID: " + urlId);
+            }
+        }
+        return List.copyOf(new HashSet<>(requestedIds));
+    }
+
+    /**
+     * Writes the clicks of the given URLs accessed in [from, to) to the stream.
+     *
+     * @return number of rows written
+     */
+    public long export(List<Long> urlIds, LocalDateTime from, LocalDateTime to, String format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rowWriter = "ndjson".equals(format) ? new NdjsonRowWriter(writer) : new CsvRowWriter(writer);
+        AtomicLong rows = new AtomicLong();
+
+        try {
+            rowWriter.start();
+            // Partitions are read oldest first, so rows stay in time order without a merge sort
+            List<UrlAnalyticsPartitions.Partition> overlapping = partitions.overlapping(from, to);
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                for (Long urlId : urlIds) {
+                    for (UrlAnalyticsPartitions.Partition partition : overlapping) {
+                        jdbcTemplate.query(connection -> {
+                            var statement = connection.prepareStatement(String.format(EXPORT_SQL, partition.table()),
+                                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                            statement.setFetchSize(FETCH_SIZE);
+                            statement.setLong(1, urlId);
+                            statement.setTimestamp(2, Timestamp.valueOf(from));
+                            statement.setTimestamp(3, Timestamp.valueOf(to));
+                            return statement;
+                        }, resultSet -> {
+                            try {
+                                rowWriter.write(resultSet);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            rows.incrementAndGet();
+                        });
+                    }
+                }
+            });
+            rowWriter.finish();
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor is closed with the transaction
+            throw e.getCause();
+        }
+
+        logger.info("Exported {} analytics rows for {} URLs", rows.get(), urlIds.size());
+        return rows.get();
+    }
+
+    private Object readColumn(ResultSet resultSet, int column) throws SQLException {
+        if (DECODED[column - 1]) {
+            int id = resultSet.getInt(column);
+            return resultSet.wasNull() ? null : dimensionDictionary.decode(id);
+        }
+        return resultSet.getObject(column);
+    }
+
+    private interface RowWriter {
+        void start() throws IOException;
+        void write(ResultSet resultSet) throws SQLException, IOException;
+        void finish() throws IOException;
+    }
+
+    private class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet resultSet) throws SQLException, IOException {
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = readColumn(resultSet, i);
+                if (value instanceof Timestamp timestamp) {
+                    writer.write(timestamp.toLocalDateTime().toString());
+                } else if (value != null) {
+                    writeEscaped(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        // RFC 4180 quoting
+        private void writeEscaped(String value) throws IOException {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private class NdjsonRowWriter implements RowWriter {
+        private final Writer writer;
+        private JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            generator = objectMapper.getFactory().createGenerator(writer);
+            // Flushing per row only moves the generator's buffer into the buffered writer
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet resultSet) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 1; i <= COLUMNS.length; i++) {
+                Object value = readColumn(resultSet, i);
+                if (value instanceof Timestamp timestamp) {
+                    generator.writeStringField(COLUMNS[i - 1], timestamp.toLocalDateTime().toString());
+                } else if (value instanceof Number number) {
+                    generator.writeFieldName(COLUMNS[i - 1]);
+                    generator.writeNumber(number.toString());
+                } else if (value != null) {
+                    generator.writeStringField(COLUMNS[i - 1], value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.flush();
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.repository.UrlAnalyticsRepository;
+import com.example.urlshortener.util.IpAddress;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous click analytics pipeline:
+ * <ol>
+ *   <li>redirects offer a {@link ClickEvent} to a bounded queue and never block;
+ *       when the queue is full the configured drop policy applies,</li>
+ *   <li>a pool of enrichment workers parses the user agent and resolves the location,</li>
+ *   <li>a single writer persists the enriched rows in JDBC batches.</li>
+ * </ol>
+ */
+@Service
+public class AnalyticsIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsIngestionService.class);
+
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    private static final Set<String> ISO_LANGUAGES = Set.of(Locale.getISOLanguages());
+    private static final Set<String> ISO_COUNTRIES = Set.of(Locale.getISOCountries());
+
+    @Autowired
+    private UrlAnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private GeoLocationService geoLocationService;
+
+    @Autowired
+    private UserAgentService userAgentService;
+
+    @Autowired
+    private DimensionDictionaryService dimensionDictionary;
+
+    @Autowired
+    private AnalyticsRollupService rollupService;
+
+    @Autowired
+    private UniqueVisitorService uniqueVisitorService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${url-shortener.analytics.batch-size}")
+    private int batchSize;
+
+    @Value("${url-shortener.analytics.ingestion.queue-capacity}")
+    private int queueCapacity;
+
+    @Value("${url-shortener.analytics.ingestion.workers}")
+    private int workerCount;
+
+    @Value("${url-shortener.analytics.ingestion.drop-policy}")
+    private String dropPolicy;
+
+    @Value("${url-shortener.analytics.ingestion.linger-ms}")
+    private long lingerMs;
+
+    private BlockingQueue<ClickEvent> eventQueue;
+    private BlockingQueue<UrlAnalytics> writeQueue;
+    private ExecutorService enrichmentWorkers;
+    private ExecutorService writer;
+    private TransactionTemplate transactionTemplate;
+
+    private volatile boolean accepting;
+    private volatile boolean writing;
+
+    private Counter droppedCounter;
+    private Counter persistedCounter;
+    private Counter failedCounter;
+    private Timer writeTimer;
+
+    @PostConstruct
+    public void start() {
+        eventQueue = new ArrayBlockingQueue<>(queueCapacity);
+        writeQueue = new ArrayBlockingQueue<>(batchSize * 4);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("urlshortener.analytics.ingest.queue.size", eventQueue, BlockingQueue::size)
+                .tag("stage", "enrich")
+                .register(meterRegistry);
+        Gauge.builder("urlshortener.analytics.ingest.queue.size", writeQueue, BlockingQueue::size)
+                .tag("stage", "write")
+                .register(meterRegistry);
+        droppedCounter = meterRegistry.counter("urlshortener.analytics.ingest.dropped");
+        persistedCounter = meterRegistry.counter("urlshortener.analytics.ingest.persisted");
+        failedCounter = meterRegistry.counter("urlshortener.analytics.ingest.failed");
+        writeTimer = meterRegistry.timer("urlshortener.analytics.ingest.write");
+
+        accepting = true;
+        writing = true;
+
+        enrichmentWorkers = Executors.newFixedThreadPool(workerCount, daemonThreadFactory("analytics-enrich-"));
+        for (int i = 0; i < workerCount; i++) {
+            enrichmentWorkers.execute(this::runEnrichmentWorker);
+        }
+
+        writer = Executors.newSingleThreadExecutor(daemonThreadFactory("analytics-writer-"));
+        writer.execute(this::runWriter);
+
+        logger.info("Analytics ingestion started (queue capacity: {}, workers: {}, batch size: {}, drop policy: {})",
+                queueCapacity, workerCount, batchSize, dropPolicy);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        logger.info("Stopping analytics ingestion, {} events pending", eventQueue.size() + writeQueue.size());
+
+        // Workers drain the event queue before exiting, then the writer drains its queue
+        accepting = false;
+        enrichmentWorkers.shutdown();
+        enrichmentWorkers.awaitTermination(10, TimeUnit.SECONDS);
+
+        writing = false;
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Enqueues a click without blocking the caller.
+     *
+     * @return false if the event (or an older one, with the drop-oldest policy) was discarded
+     */
+    public boolean submit(ClickEvent event) {
+        if (!accepting) {
+            droppedCounter.increment();
+            return false;
+        }
+
+        if (eventQueue.offer(event)) {
+            return true;
+        }
+
+        droppedCounter.increment();
+        if ("drop-oldest".equals(dropPolicy)) {
+            eventQueue.poll();
+            eventQueue.offer(event);
+        }
+        return false;
+    }
+
+    private void runEnrichmentWorker() {
+        while (accepting || !eventQueue.isEmpty()) {
+            try {
+                ClickEvent event = eventQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    // Blocks when the writer falls behind, which backs up into the event queue
+                    writeQueue.put(enrich(event));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Error enriching click event", e);
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<UrlAnalytics> batch = new ArrayList<>(batchSize);
+
+        while (writing || !writeQueue.isEmpty()) {
+            try {
+                UrlAnalytics first = writeQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                fillBatch(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Waits up to linger-ms after the first record for the batch to fill; no lingering once stopping
+    private void fillBatch(List<UrlAnalytics> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (true) {
+            writeQueue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !writing) {
+                return;
+            }
+            // Bounded so that stop() is noticed during a long linger
+            UrlAnalytics next = writeQueue.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(POLL_TIMEOUT_MS)),
+                    TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void write(List<UrlAnalytics> batch) {
+        try {
+            writeTimer.record(() -> {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(batch));
+                } catch (DataIntegrityViolationException e) {
+                    // Another node inserted one of the new rollup buckets first; those rows now exist
+                    logger.debug("Concurrent rollup insert detected, retrying batch");
+                    transactionTemplate.executeWithoutResult(status -> persist(batch));
+                }
+            });
+            persistedCounter.increment(batch.size());
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            logger.error("Failed to persist {} analytics records", batch.size(), e);
+            return;
+        }
+
+        uniqueVisitorService.record(batch);
+    }
+
+    // Raw rows and their rollup counters commit or roll back together; skipped rows are not counted
+    private void persist(List<UrlAnalytics> batch) {
+        rollupService.apply(analyticsRepository.saveAll(batch));
+    }
+
+    private UrlAnalytics enrich(ClickEvent event) {
+        UrlAnalytics analytics = new UrlAnalytics(event.getUrlId(), event.getClientIp());
+        analytics.setAccessedAt(event.getAccessedAt());
+        // Oversized headers would fail the whole write batch
+        analytics.setUserAgent(truncate(event.getUserAgent(), 500));
+        analytics.setReferer(truncate(event.getReferer(), 500));
+        analytics.setLanguage(primaryLanguage(event.getLanguage()));
+
+        // Parse user agent (cached per distinct string)
+        UserAgentService.ParsedUserAgent ua = userAgentService.parse(analytics.getUserAgent());
+        if (ua != null) {
+            analytics.setBrowser(ua.browser());
+            analytics.setOperatingSystem(ua.operatingSystem());
+            analytics.setDevice(ua.device());
+        }
+
+        // Get geographic information
+        String clientIp = event.getClientIp();
+        IpAddress address = IpAddress.parse(clientIp);
+        if (address != null && !address.isLocal()) {
+            try {
+                GeoLocationService.LocationInfo locationInfo = geoLocationService.getLocationInfo(address);
+                if (locationInfo != null) {
+                    analytics.setCountry(locationInfo.getCountry());
+                    analytics.setCity(locationInfo.getCity());
+                    analytics.setLatitude(locationInfo.getLatitude());
+                    analytics.setLongitude(locationInfo.getLongitude());
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to get location info for IP: {}", clientIp, e);
+            }
+        }
+
+        // Rows store dictionary ids; the decoded values stay set for the rollups
+        dimensionDictionary.encode(analytics);
+
+        return analytics;
+    }
+
+    // First entry of Accept-Language as "en" or "en-US", so the dictionary holds a bounded set of
+    // tags rather than every header variant; anything that is not an ISO language is dropped
+    static String primaryLanguage(String acceptLanguage) {
+        if (acceptLanguage == null) {
+            return null;
+        }
+        int end = 0;
+        while (end < acceptLanguage.length() && acceptLanguage.charAt(end) != ',' && acceptLanguage.charAt(end) != ';') {
+            end++;
+        }
+        String[] subtags = acceptLanguage.substring(0, end).trim().split("[-_]");
+        String language = subtags[0].toLowerCase(Locale.ROOT);
+        if (!ISO_LANGUAGES.contains(language)) {
+            return null;
+        }
+        if (subtags.length > 1) {
+            String region = subtags[1].toUpperCase(Locale.ROOT);
+            if (ISO_COUNTRIES.contains(region)) {
+                return language + "-" + region;
+            }
+        }
+        return language;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private static CustomizableThreadFactory daemonThreadFactory(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    public static class ClickEvent {
+        private final Long urlId;
+        private final LocalDateTime accessedAt;
+        private final String clientIp;
+        private final String userAgent;
+        private final String referer;
+        private final String language;
+
+        public ClickEvent(Long urlId, String clientIp, String userAgent, String referer, String language) {
+            this.urlId = urlId;
+            this.accessedAt = LocalDateTime.now();
+            this.clientIp = clientIp;
+            this.userAgent = userAgent;
+            this.referer = referer;
+            this.language = language;
+        }
+
+        public Long getUrlId() { return urlId; }
+        public LocalDateTime getAccessedAt() { return accessedAt; }
+        public String getClientIp() { return clientIp; }
+        public String getUserAgent() { return userAgent; }
+        public String getReferer() { return referer; }
+        public String getLanguage() { return language; }
+    }
+}
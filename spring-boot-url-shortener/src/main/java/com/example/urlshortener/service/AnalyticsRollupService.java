@@ -0,0 +1,111 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.entity.UrlClickRollup;
+import com.example.urlshortener.entity.UrlClickRollup.Dimension;
+import com.example.urlshortener.entity.UrlClickRollup.Granularity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains per-URL click counters in url_click_rollups as analytics rows are
+ * ingested: hourly and daily totals, daily and all-time counters per dimension
+ * (country, browser, OS, device, referrer). The analytics dashboard reads these
+ * instead of aggregating the raw url_analytics rows. Counters are updated in
+ * the transaction that inserts the raw rows, so the two never disagree.
+ */
+@Service
+public class AnalyticsRollupService {
+
+    private static final String UPDATE_SQL =
+            "UPDATE url_click_rollups SET clicks = clicks + ? WHERE url_id = ? AND granularity = ? " +
+            "AND bucket_start = ? AND dimension = ? AND dimension_value = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO url_click_rollups (url_id, granularity, bucket_start, dimension, dimension_value, clicks) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds a batch of raw clicks to the counters, in the caller's transaction.
+     * A DataIntegrityViolationException means another node created one of the
+     * new buckets first; the caller retries its whole transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(List<UrlAnalytics> batch) {
+        Map<RollupKey, Long> deltas = aggregate(batch);
+        if (!deltas.isEmpty()) {
+            upsert(deltas);
+        }
+    }
+
+    private Map<RollupKey, Long> aggregate(List<UrlAnalytics> batch) {
+        Map<RollupKey, Long> deltas = new HashMap<>();
+
+        for (UrlAnalytics analytics : batch) {
+            Long urlId = analytics.getUrlId();
+            LocalDateTime hour = analytics.getAccessedAt().truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime day = analytics.getAccessedAt().truncatedTo(ChronoUnit.DAYS);
+
+            deltas.merge(new RollupKey(urlId, Granularity.HOUR, hour, Dimension.TOTAL, ""), 1L, Long::sum);
+            deltas.merge(new RollupKey(urlId, Granularity.DAY, day, Dimension.TOTAL, ""), 1L, Long::sum);
+
+            addDimension(deltas, urlId, day, Dimension.COUNTRY, analytics.getCountry());
+            addDimension(deltas, urlId, day, Dimension.BROWSER, analytics.getBrowser());
+            addDimension(deltas, urlId, day, Dimension.OPERATING_SYSTEM, analytics.getOperatingSystem());
+            addDimension(deltas, urlId, day, Dimension.DEVICE, analytics.getDevice());
+            addDimension(deltas, urlId, day, Dimension.REFERER, analytics.getReferer());
+        }
+
+        return deltas;
+    }
+
+    private void addDimension(Map<RollupKey, Long> deltas, Long urlId, LocalDateTime day, Dimension dimension, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        deltas.merge(new RollupKey(urlId, Granularity.DAY, day, dimension, value), 1L, Long::sum);
+        deltas.merge(new RollupKey(urlId, Granularity.ALL, UrlClickRollup.ALL_TIME, dimension, value), 1L, Long::sum);
+    }
+
+    private void upsert(Map<RollupKey, Long> deltas) {
+        List<RollupKey> keys = new ArrayList<>(deltas.keySet());
+
+        List<Object[]> updates = new ArrayList<>(keys.size());
+        for (RollupKey key : keys) {
+            updates.add(new Object[] {deltas.get(key), key.urlId(), key.granularity().name(),
+                    Timestamp.valueOf(key.bucketStart()), key.dimension().name(), key.dimensionValue()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+
+        // Buckets that did not exist yet are created in a second batch
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (updated[i] == 0) {
+                RollupKey key = keys.get(i);
+                inserts.add(new Object[] {key.urlId(), key.granularity().name(), Timestamp.valueOf(key.bucketStart()),
+                        key.dimension().name(), key.dimensionValue(), deltas.get(key)});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+    }
+
+    private record RollupKey(Long urlId, Granularity granularity, LocalDateTime bucketStart,
+                             Dimension dimension, String dimensionValue) {
+    }
+}
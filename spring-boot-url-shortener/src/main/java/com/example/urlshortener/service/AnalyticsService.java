@@ -1,24 +1,29 @@
 package com.example.urlshortener.service;
 
+import com.example.urlshortener.cache.CachedRedirect;
 import com.example.urlshortener.dto.UrlAnalyticsResponse;
 import com.example.urlshortener.entity.Url;
 import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.entity.UrlClickRollup;
+import com.example.urlshortener.repository.UrlAnalyticsPartitions;
 import com.example.urlshortener.repository.UrlAnalyticsRepository;
+import com.example.urlshortener.repository.UrlClickRollupRepository;
 import com.example.urlshortener.repository.UrlRepository;
-import eu.bitwalker.useragentutils.UserAgent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,68 +35,37 @@ public class AnalyticsService {
     @Autowired
     private UrlAnalyticsRepository analyticsRepository;
     
+    @Autowired
+    private UrlAnalyticsPartitions analyticsPartitions;
+    
     @Autowired
     private UrlRepository urlRepository;
     
     @Autowired
-    private GeoLocationService geoLocationService;
+    private UrlClickRollupRepository rollupRepository;
+    
+    @Autowired
+    private AnalyticsIngestionService ingestionService;
+    
+    @Autowired
+    private UniqueVisitorService uniqueVisitorService;
+    
+    @Autowired
+    private DimensionDictionaryService dimensionDictionary;
     
     @Value("${url-shortener.analytics.enabled}")
     private boolean analyticsEnabled;
 
-    @Async
-    public void recordClick(String shortCode, String clientIp, String userAgent, String referer, String language) {
-        if (!analyticsEnabled) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void recordClick(CachedRedirect url, String clientIp, String userAgent, String referer, String language) {
+        if (!analyticsEnabled || !url.analyticsEnabled()) {
             return;
         }
         
-        logger.debug("Recording analytics for short code: {}", shortCode);
+        logger.debug("Recording analytics for short code: {}", url.shortCode());
         
-        try {
-            Optional<Url> urlOpt = urlRepository.findByShortCode(shortCode);
-            if (urlOpt.isEmpty() || !urlOpt.get().getAnalyticsEnabled()) {
-                return;
-            }
-            
-            Url url = urlOpt.get();
-            
-            // Create analytics record
-            UrlAnalytics analytics = new UrlAnalytics(url.getId(), clientIp);
-            analytics.setUserAgent(userAgent);
-            analytics.setReferer(referer);
-            analytics.setLanguage(language);
-            
-            // Parse user agent
-            if (userAgent != null) {
-                UserAgent ua = UserAgent.parseUserAgentString(userAgent);
-                analytics.setBrowser(ua.getBrowser().getName());
-                analytics.setOperatingSystem(ua.getOperatingSystem().getName());
-                analytics.setDevice(ua.getOperatingSystem().getDeviceType().getName());
-            }
-            
-            // Get geographic information
-            if (clientIp != null && !isLocalIp(clientIp)) {
-                try {
-                    GeoLocationService.LocationInfo locationInfo = geoLocationService.getLocationInfo(clientIp);
-                    if (locationInfo != null) {
-                        analytics.setCountry(locationInfo.getCountry());
-                        analytics.setCity(locationInfo.getCity());
-                        analytics.setLatitude(locationInfo.getLatitude());
-                        analytics.setLongitude(locationInfo.getLongitude());
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed to get location info for IP: {}", clientIp, e);
-                }
-            }
-            
-            // Save analytics
-            analyticsRepository.save(analytics);
-            
-            logger.debug("Analytics recorded successfully for URL: {}", url.getId());
-            
-        } catch (Exception e) {
-            logger.error("Error recording analytics for short code: {}", shortCode, e);
-        }
+        // Enrichment and persistence happen on the ingestion pipeline's threads
+        ingestionService.submit(new AnalyticsIngestionService.ClickEvent(url.id(), clientIp, userAgent, referer, language));
     }
 
     public UrlAnalyticsResponse getUrlAnalytics(String shortCode, String createdBy) {
@@ -131,27 +105,29 @@ public class AnalyticsService {
         
         // Basic stats
         response.setTotalClicks(url.getClickCount());
-        response.setUniqueVisitors(analyticsRepository.getUniqueVisitors(url.getId()));
+        UniqueVisitorService.UniqueVisitors uniqueVisitors = uniqueVisitorService.getUniqueVisitors(url);
+        response.setUniqueVisitors(uniqueVisitors.getCount());
+        response.setUniqueVisitorsEstimated(uniqueVisitors.isEstimated());
         response.setCreatedAt(url.getCreatedAt());
         response.setLastAccessedAt(url.getLastAccessedAt());
         
         // Time-based analytics
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-        LocalDateTime twentyFourHoursAgo = LocalDateTime.now().minusHours(24);
+        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30).truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime twentyFourHoursAgo = LocalDateTime.now().minusHours(24).truncatedTo(ChronoUnit.HOURS);
         
         response.setDailyStats(getDailyClickStats(url.getId(), thirtyDaysAgo));
         response.setHourlyStats(getHourlyClickStats(url.getId(), twentyFourHoursAgo));
         
-        // Geographic analytics
-        response.setCountryStats(getCountryStats(url.getId()));
+        // Geographic, technology and referrer analytics from the all-time counters
+        Map<UrlClickRollup.Dimension, List<UrlClickRollup>> breakdowns = rollupRepository
+                .findByGranularity(url.getId(), UrlClickRollup.Granularity.ALL).stream()
+                .collect(Collectors.groupingBy(UrlClickRollup::getDimension));
         
-        // Technology analytics
-        response.setBrowserStats(getBrowserStats(url.getId()));
-        response.setOperatingSystemStats(getOperatingSystemStats(url.getId()));
-        response.setDeviceStats(getDeviceStats(url.getId()));
-        
-        // Referrer analytics
-        response.setReferrerStats(getReferrerStats(url.getId()));
+        response.setCountryStats(toStats(breakdowns, UrlClickRollup.Dimension.COUNTRY, UrlAnalyticsResponse.CountryStats::new));
+        response.setBrowserStats(toStats(breakdowns, UrlClickRollup.Dimension.BROWSER, UrlAnalyticsResponse.BrowserStats::new));
+        response.setOperatingSystemStats(toStats(breakdowns, UrlClickRollup.Dimension.OPERATING_SYSTEM, UrlAnalyticsResponse.OperatingSystemStats::new));
+        response.setDeviceStats(toStats(breakdowns, UrlClickRollup.Dimension.DEVICE, UrlAnalyticsResponse.DeviceStats::new));
+        response.setReferrerStats(toStats(breakdowns, UrlClickRollup.Dimension.REFERER, UrlAnalyticsResponse.ReferrerStats::new));
         
         // Recent clicks
         response.setRecentClicks(getRecentClicks(url.getId()));
@@ -160,78 +136,42 @@ public class AnalyticsService {
     }
 
     private List<UrlAnalyticsResponse.DailyClickStats> getDailyClickStats(Long urlId, LocalDateTime startDate) {
-        List<Object[]> results = analyticsRepository.getDailyClickStats(urlId, startDate);
-        return results.stream()
-                .map(result -> new UrlAnalyticsResponse.DailyClickStats(
-                    result[0].toString(),
-                    ((Number) result[1]).longValue()
+        List<UrlClickRollup> buckets = rollupRepository.findBuckets(urlId, UrlClickRollup.Granularity.DAY,
+                UrlClickRollup.Dimension.TOTAL, startDate);
+        return buckets.stream()
+                .map(bucket -> new UrlAnalyticsResponse.DailyClickStats(
+                    bucket.getBucketStart().toLocalDate().toString(),
+                    bucket.getClicks()
                 ))
                 .collect(Collectors.toList());
     }
 
     private List<UrlAnalyticsResponse.HourlyClickStats> getHourlyClickStats(Long urlId, LocalDateTime startDate) {
-        List<Object[]> results = analyticsRepository.getHourlyClickStats(urlId, startDate);
-        return results.stream()
-                .map(result -> new UrlAnalyticsResponse.HourlyClickStats(
-                    ((Number) result[0]).intValue(),
-                    ((Number) result[1]).longValue()
-                ))
-                .collect(Collectors.toList());
-    }
-
-    private List<UrlAnalyticsResponse.CountryStats> getCountryStats(Long urlId) {
-        List<Object[]> results = analyticsRepository.getClicksByCountry(urlId);
-        return results.stream()
-                .map(result -> new UrlAnalyticsResponse.CountryStats(
-                    (String) result[0],
-                    ((Number) result[1]).longValue()
-                ))
-                .collect(Collectors.toList());
-    }
-
-    private List<UrlAnalyticsResponse.BrowserStats> getBrowserStats(Long urlId) {
-        List<Object[]> results = analyticsRepository.getClicksByBrowser(urlId);
-        return results.stream()
-                .map(result -> new UrlAnalyticsResponse.BrowserStats(
-                    (String) result[0],
-                    ((Number) result[1]).longValue()
-                ))
-                .collect(Collectors.toList());
-    }
-
-    private List<UrlAnalyticsResponse.OperatingSystemStats> getOperatingSystemStats(Long urlId) {
-        List<Object[]> results = analyticsRepository.getClicksByOperatingSystem(urlId);
-        return results.stream()
-                .map(result -> new UrlAnalyticsResponse.OperatingSystemStats(
-                    (String) result[0],
-                    ((Number) result[1]).longValue()
-                ))
-                .collect(Collectors.toList());
-    }
-
-    private List<UrlAnalyticsResponse.DeviceStats> getDeviceStats(Long urlId) {
-        List<Object[]> results = analyticsRepository.getClicksByDevice(urlId);
-        return results.stream()
-                .map(result -> new UrlAnalyticsResponse.DeviceStats(
-                    (String) result[0],
-                    ((Number) result[1]).longValue()
-                ))
+        List<UrlClickRollup> buckets = rollupRepository.findBuckets(urlId, UrlClickRollup.Granularity.HOUR,
+                UrlClickRollup.Dimension.TOTAL, startDate);
+        
+        // Clicks per hour of day; the oldest and current bucket can share an hour
+        Map<Integer, Long> clicksByHour = new TreeMap<>();
+        for (UrlClickRollup bucket : buckets) {
+            clicksByHour.merge(bucket.getBucketStart().getHour(), bucket.getClicks(), Long::sum);
+        }
+        return clicksByHour.entrySet().stream()
+                .map(entry -> new UrlAnalyticsResponse.HourlyClickStats(entry.getKey(), entry.getValue()))
                 .collect(Collectors.toList());
     }
 
-    private List<UrlAnalyticsResponse.ReferrerStats> getReferrerStats(Long urlId) {
-        List<Object[]> results = analyticsRepository.getClicksByReferer(urlId);
-        return results.stream()
-                .map(result -> new UrlAnalyticsResponse.ReferrerStats(
-                    (String) result[0],
-                    ((Number) result[1]).longValue()
-                ))
+    private <T> List<T> toStats(Map<UrlClickRollup.Dimension, List<UrlClickRollup>> breakdowns,
+                                UrlClickRollup.Dimension dimension,
+                                BiFunction<String, Long, T> factory) {
+        return breakdowns.getOrDefault(dimension, List.of()).stream()
+                .map(rollup -> factory.apply(rollup.getDimensionValue(), rollup.getClicks()))
                 .collect(Collectors.toList());
     }
 
     private List<UrlAnalyticsResponse.RecentClick> getRecentClicks(Long urlId) {
-        List<UrlAnalytics> recentAnalytics = analyticsRepository.getRecentAnalytics(urlId, PageRequest.of(0, 10)).getContent();
+        List<UrlAnalytics> recentAnalytics = analyticsRepository.findRecent(urlId, 10);
         return recentAnalytics.stream()
+                .map(dimensionDictionary::decode)
                 .map(analytics -> new UrlAnalyticsResponse.RecentClick(
                     analytics.getAccessedAt(),
                     analytics.getCountry(),
@@ -245,6 +185,8 @@ public class AnalyticsService {
     public void deleteAnalytics(Long urlId) {
         logger.info("Deleting analytics for URL ID: {}", urlId);
         analyticsRepository.deleteByUrlId(urlId);
+        rollupRepository.deleteByUrlId(urlId);
+        uniqueVisitorService.delete(urlId);
     }
 
     @Transactional
@@ -252,17 +194,14 @@ public class AnalyticsService {
         logger.info("Cleaning up analytics older than {} days", daysToKeep);
         
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        analyticsRepository.deleteOldAnalytics(cutoffDate);
+        // Whole partitions are dropped, so no rows are deleted one by one; they already stopped being
+        // read at the retention cutoff and are dropped a day after it
+        int dropped = analyticsPartitions.dropExpired();
         
-        logger.info("Cleaned up analytics older than {}", cutoffDate);
-    }
-
-    private boolean isLocalIp(String ip) {
-        return ip.equals("127.0.0.1") || 
-               ip.equals("localhost") || 
-               ip.equals("0:0:0:0:0:0:0:1") ||
-               ip.startsWith("192.168.") ||
-               ip.startsWith("10.") ||
-               ip.startsWith("172.");
+        // All-time counters are kept; hourly and daily buckets follow the raw data
+        rollupRepository.deleteBucketsBefore(
+                List.of(UrlClickRollup.Granularity.HOUR, UrlClickRollup.Granularity.DAY), cutoffDate);
+        
+        logger.info("Cleaned up analytics older than {} ({} partitions dropped)", cutoffDate, dropped);
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.example.urlshortener.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind click counter. Redirects only bump an in-memory striped counter;
+ * the accumulated deltas are written to the urls table in batched UPDATEs by
+ * {@link #flush()}. Deltas that cannot be written on shutdown are spilled to a
+ * local file and replayed on the next start.
+ */
+@Service
+public class ClickCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickCounterService.class);
+
+    private static final String UPDATE_SQL =
+            "UPDATE urls SET click_count = click_count + ?, last_accessed_at = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${url-shortener.analytics.batch-size}")
+    private int batchSize;
+
+    @Value("${url-shortener.analytics.click-spill-file}")
+    private String spillFile;
+
+    private final ConcurrentHashMap<Long, ClickCounter> counters = new ConcurrentHashMap<>();
+
+    // Not synchronized: a flush blocks on JDBC and would pin a virtual thread to its carrier
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        replaySpillFile();
+    }
+
+    public void increment(Long urlId) {
+        add(urlId, 1, System.currentTimeMillis());
+    }
+
+    private void add(long urlId, long clicks, long accessedAt) {
+        while (clicks > 0) {
+            ClickCounter counter = counters.computeIfAbsent(urlId, id -> new ClickCounter());
+            counter.clicks.add(clicks);
+            if (accessedAt > counter.lastAccessedAt) {
+                counter.lastAccessedAt = accessedAt;
+            }
+            if (!counter.retired) {
+                return;
+            }
+            // Removed by drain after we fetched it; move what its final read missed to a live counter
+            clicks = counter.clicks.sumThenReset();
+        }
+    }
+
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushPending() {
+        List<PendingClicks> pending = drain();
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, pending, batchSize, (ps, clicks) -> {
+                ps.setLong(1, clicks.delta);
+                ps.setTimestamp(2, new Timestamp(clicks.lastAccessedAt));
+                ps.setLong(3, clicks.urlId);
+            });
+            return pending.size();
+        } catch (Exception e) {
+            // Put the deltas back so the next flush retries them
+            logger.error("Failed to flush click counts for {} URLs, will retry", pending.size(), e);
+            pending.forEach(this::restore);
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+
+        List<PendingClicks> pending = drain();
+        if (!pending.isEmpty()) {
+            writeSpillFile(pending);
+        }
+    }
+
+    private List<PendingClicks> drain() {
+        List<PendingClicks> pending = new ArrayList<>();
+
+        for (Map.Entry<Long, ClickCounter> entry : counters.entrySet()) {
+            ClickCounter counter = entry.getValue();
+            long delta = counter.clicks.sumThenReset();
+
+            if (delta > 0) {
+                pending.add(new PendingClicks(entry.getKey(), delta, counter.lastAccessedAt));
+            } else if (counters.remove(entry.getKey(), counter)) {
+                // Idle counter: clicks added before the flag is seen are carried over here, later ones by add()
+                counter.retired = true;
+                long late = counter.clicks.sumThenReset();
+                if (late > 0) {
+                    pending.add(new PendingClicks(entry.getKey(), late, counter.lastAccessedAt));
+                }
+            }
+        }
+
+        return pending;
+    }
+
+    private void restore(PendingClicks clicks) {
+        add(clicks.urlId, clicks.delta, clicks.lastAccessedAt);
+    }
+
+    private void writeSpillFile(List<PendingClicks> pending) {
+        Path path = Paths.get(spillFile);
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (PendingClicks clicks : pending) {
+                writer.write(clicks.urlId + "," + clicks.delta + "," + clicks.lastAccessedAt);
+                writer.newLine();
+            }
+            logger.warn("Spilled unflushed click counts for {} URLs to {}", pending.size(), path.toAbsolutePath());
+        } catch (IOException e) {
+            logger.error("Failed to spill click counts, {} URLs lose pending clicks: {}", pending.size(), pending, e);
+        }
+    }
+
+    private void replaySpillFile() {
+        Path path = Paths.get(spillFile);
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try {
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] parts = line.split(",");
+                if (parts.length == 3) {
+                    restore(new PendingClicks(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                }
+            }
+            Files.delete(path);
+            logger.info("Replayed spilled click counts for {} URLs from {}", lines.size(), path.toAbsolutePath());
+        } catch (IOException | NumberFormatException e) {
+            logger.error("Failed to replay spilled click counts from {}", path.toAbsolutePath(), e);
+        }
+    }
+
+    private static class ClickCounter {
+        private final LongAdder clicks = new LongAdder();
+        private volatile long lastAccessedAt;
+        // Set once the counter has been removed from the map
+        private volatile boolean retired;
+    }
+
+    private static class PendingClicks {
+        private final long urlId;
+        private final long delta;
+        private final long lastAccessedAt;
+
+        PendingClicks(long urlId, long delta, long lastAccessedAt) {
+            this.urlId = urlId;
+            this.delta = delta;
+            this.lastAccessedAt = lastAccessedAt;
+        }
+
+        @Override
+        public String toString() {
+            return urlId + "+" + delta;
+        }
+    }
+}
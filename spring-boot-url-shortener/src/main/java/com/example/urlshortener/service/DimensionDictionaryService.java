@@ -0,0 +1,212 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.entity.DimensionValue.Kind;
+import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.repository.UrlAnalyticsPartitions;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dictionary for the low-cardinality strings of url_analytics rows (browser,
+ * OS, device, country, language). Rows store small integer ids; the strings
+ * live once in dimension_values. Both directions are cached in memory, and
+ * dictionary entries never change, so cached mappings stay valid on every node.
+ * User agents, cities and referrers are stored as-is: nearly every value is
+ * distinct or client-chosen, so the dictionary would only grow without bound.
+ */
+@Service
+public class DimensionDictionaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DimensionDictionaryService.class);
+
+    private static final String INSERT_SQL = "INSERT INTO dimension_values (kind, dimension_value) VALUES (?, ?)";
+    private static final String SELECT_ID_SQL = "SELECT id FROM dimension_values WHERE kind = ? AND dimension_value = ?";
+    private static final String SELECT_VALUE_SQL = "SELECT dimension_value FROM dimension_values WHERE id = ?";
+
+    // The legacy table only had the string columns; IF NOT EXISTS keeps a rerun after a partial backfill cheap
+    private static final String[] LEGACY_ID_COLUMNS = {
+        "browser_id", "operating_system_id", "device_id", "country_id", "language_id"
+    };
+
+    private static final String LEGACY_SELECT_SQL =
+            "SELECT id, browser, operating_system, device, country, language " +
+            "FROM url_analytics WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String LEGACY_UPDATE_SQL =
+            "UPDATE url_analytics SET browser_id = COALESCE(browser_id, ?), " +
+            "operating_system_id = COALESCE(operating_system_id, ?), device_id = COALESCE(device_id, ?), " +
+            "country_id = COALESCE(country_id, ?), language_id = COALESCE(language_id, ?) WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UrlAnalyticsPartitions partitions;
+
+    @Value("${url-shortener.analytics.dimensions.cache-size}")
+    private long cacheSize;
+
+    @Value("${url-shortener.analytics.migrate-legacy-table}")
+    private boolean migrateLegacyTable;
+
+    @Value("${url-shortener.analytics.dimensions.migration-chunk-size}")
+    private int migrationChunkSize;
+
+    private Cache<DimensionKey, Integer> ids;
+    private Cache<Integer, String> values;
+
+    @PostConstruct
+    public void init() {
+        ids = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+        values = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, ids, "dimensionIds");
+        CaffeineCacheMetrics.monitor(meterRegistry, values, "dimensionValues");
+    }
+
+    /**
+     * @return the id for the value, creating the dictionary entry on first use; null for null or empty values
+     */
+    public Integer encode(Kind kind, String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        Integer id = ids.get(new DimensionKey(kind, value), this::findOrInsert);
+        values.put(id, value);
+        return id;
+    }
+
+    public String decode(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        return values.get(id, key -> jdbcTemplate.query(SELECT_VALUE_SQL,
+                rs -> rs.next() ? rs.getString(1) : null, key));
+    }
+
+    // Sets the id columns from the decoded values filled in by enrichment
+    public void encode(UrlAnalytics analytics) {
+        analytics.setBrowserId(encode(Kind.BROWSER, analytics.getBrowser()));
+        analytics.setOperatingSystemId(encode(Kind.OPERATING_SYSTEM, analytics.getOperatingSystem()));
+        analytics.setDeviceId(encode(Kind.DEVICE, analytics.getDevice()));
+        analytics.setCountryId(encode(Kind.COUNTRY, analytics.getCountry()));
+        analytics.setLanguageId(encode(Kind.LANGUAGE, analytics.getLanguage()));
+    }
+
+    // Fills in the decoded values of a row read from the database
+    public UrlAnalytics decode(UrlAnalytics analytics) {
+        analytics.setBrowser(decode(analytics.getBrowserId()));
+        analytics.setOperatingSystem(decode(analytics.getOperatingSystemId()));
+        analytics.setDevice(decode(analytics.getDeviceId()));
+        analytics.setCountry(decode(analytics.getCountryId()));
+        analytics.setLanguage(decode(analytics.getLanguageId()));
+        return analytics;
+    }
+
+    private Integer findOrInsert(DimensionKey key) {
+        Integer existing = findId(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[] {"id"});
+                statement.setString(1, key.kind().name());
+                statement.setString(2, key.value());
+                return statement;
+            }, keyHolder);
+            return keyHolder.getKey().intValue();
+        } catch (DuplicateKeyException e) {
+            // Another node or thread created the entry first
+            return findId(key);
+        }
+    }
+
+    private Integer findId(DimensionKey key) {
+        return jdbcTemplate.query(SELECT_ID_SQL, rs -> rs.next() ? rs.getInt(1) : null,
+                key.kind().name(), key.value());
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (migrateLegacyTable) {
+            // Encoded first: partitions only have the id columns. A failed backfill throws, so nothing is moved
+            migrateLegacyColumns();
+            partitions.moveLegacyRows();
+        }
+    }
+
+    /**
+     * Adds the id columns to the unpartitioned url_analytics table of older
+     * releases and backfills them from its string columns, in keyset-paged
+     * chunks so no long transaction or table-wide lock is held. Does nothing
+     * if the table is gone; any other failure is thrown, so the rows are not
+     * moved into partitions without their ids.
+     */
+    public void migrateLegacyColumns() {
+        if (!partitions.hasLegacyTable()) {
+            logger.info("No unpartitioned analytics table found, no dimensions to migrate");
+            return;
+        }
+        for (String column : LEGACY_ID_COLUMNS) {
+            jdbcTemplate.execute("ALTER TABLE url_analytics ADD COLUMN IF NOT EXISTS " + column + " INTEGER");
+        }
+
+        long lastId = 0;
+        long migrated = 0;
+        try {
+            while (true) {
+                List<Object[]> updates = new ArrayList<>(migrationChunkSize);
+                List<Long> rowIds = new ArrayList<>(migrationChunkSize);
+                jdbcTemplate.query(LEGACY_SELECT_SQL, rs -> {
+                    rowIds.add(rs.getLong(1));
+                    updates.add(new Object[] {
+                        encode(Kind.BROWSER, rs.getString(2)), encode(Kind.OPERATING_SYSTEM, rs.getString(3)),
+                        encode(Kind.DEVICE, rs.getString(4)), encode(Kind.COUNTRY, rs.getString(5)),
+                        encode(Kind.LANGUAGE, rs.getString(6)),
+                        rs.getLong(1)
+                    });
+                }, lastId, migrationChunkSize);
+
+                if (rowIds.isEmpty()) {
+                    break;
+                }
+                jdbcTemplate.batchUpdate(LEGACY_UPDATE_SQL, updates);
+                migrated += rowIds.size();
+                lastId = rowIds.get(rowIds.size() - 1);
+            }
+            logger.info("Migrated {} analytics rows to dictionary-encoded dimensions", migrated);
+        } catch (RuntimeException e) {
+            // Rerunning resumes cheaply: COALESCE keeps the ids already set
+            logger.error("Dimension migration stopped after {} rows (last id {})", migrated, lastId);
+            throw e;
+        }
+    }
+
+    private record DimensionKey(Kind kind, String value) {
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.cache.TwoLevelCacheManager;
+import com.example.urlshortener.repository.UrlRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Deactivates expired URLs in small chunks instead of one table-wide UPDATE.
+ * Each chunk is a keyset page over idx_expires_at, deactivated in its own short
+ * transaction and evicted from the "urls" cache; chunks are paced to a maximum
+ * row rate. Redirects check expiry themselves, so a lagging reaper only delays
+ * the cleanup, never serves an expired link.
+ */
+@Service
+public class ExpiredUrlReaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiredUrlReaper.class);
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UrlStatsService urlStatsService;
+
+    @Value("${url-shortener.expiration.reaper.chunk-size}")
+    private int chunkSize;
+
+    @Value("${url-shortener.expiration.reaper.max-rows-per-second}")
+    private int maxRowsPerSecond;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Counter deactivatedCounter;
+    private Timer runTimer;
+
+    // Rows deactivated by the current (or last) run
+    private final AtomicLong runProgress = new AtomicLong();
+    // Seconds the oldest still-active expired URL has been expired, as last seen
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    // Where the next run resumes; URLs expiring before it were handled by earlier runs.
+    // A reset installs a new instance, so a run advancing from the one it read (compareAndSet)
+    // can never overwrite a reset that happened while its chunk was in flight
+    private final AtomicReference<Cursor> resume = new AtomicReference<>(new Cursor(EPOCH, 0));
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        deactivatedCounter = meterRegistry.counter("urlshortener.reaper.deactivated");
+        runTimer = meterRegistry.timer("urlshortener.reaper.run");
+        meterRegistry.gauge("urlshortener.reaper.run.progress", runProgress);
+        meterRegistry.gauge("urlshortener.reaper.lag.seconds", lagSeconds);
+    }
+
+    /**
+     * Deactivates every URL that expired before now.
+     *
+     * @return number of URLs deactivated
+     */
+    public int reap() {
+        runProgress.set(0);
+        LocalDateTime now = LocalDateTime.now();
+        long started = System.nanoTime();
+        int total = 0;
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long chunkStarted = System.nanoTime();
+                Cursor cursor = resume.get();
+                List<Object[]> rows = urlRepository.findExpiredAfter(now, cursor.expiresAt(), cursor.id(),
+                        PageRequest.of(0, chunkSize));
+                if (rows.isEmpty()) {
+                    lagSeconds.set(0);
+                    break;
+                }
+
+                List<Long> ids = new ArrayList<>(rows.size());
+                List<String> shortCodes = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    ids.add((Long) row[0]);
+                    shortCodes.add((String) row[1]);
+                }
+                LocalDateTime oldest = (LocalDateTime) rows.get(0)[2];
+                lagSeconds.set(Duration.between(oldest, now).getSeconds());
+
+                Integer deactivated = transactionTemplate.execute(status -> urlRepository.deactivateByIdIn(ids));
+                evictFromCache(shortCodes);
+
+                Object[] last = rows.get(rows.size() - 1);
+                // Fails after a reset; the next chunk then starts over from it
+                resume.compareAndSet(cursor, new Cursor((LocalDateTime) last[2], (Long) last[0]));
+
+                int count = deactivated != null ? deactivated : 0;
+                total += count;
+                runProgress.addAndGet(count);
+                deactivatedCounter.increment(count);
+                urlStatsService.urlsDeactivated(count);
+
+                if (rows.size() < chunkSize) {
+                    lagSeconds.set(0);
+                    break;
+                }
+                throttle(rows.size(), System.nanoTime() - chunkStarted);
+            }
+        } finally {
+            runTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+
+        return total;
+    }
+
+    /**
+     * Called when a URL gets an expiry date; one behind the resume position
+     * restarts the scan. Inside a transaction the reset waits for the commit,
+     * as a scan started earlier could not see the row and would move past it.
+     */
+    public void noteExpiresAt(LocalDateTime expiresAt) {
+        if (expiresAt == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    resetBefore(expiresAt);
+                }
+            });
+        } else {
+            resetBefore(expiresAt);
+        }
+    }
+
+    private void resetBefore(LocalDateTime expiresAt) {
+        resume.updateAndGet(cursor -> expiresAt.isBefore(cursor.expiresAt()) ? new Cursor(EPOCH, 0) : cursor);
+    }
+
+    private void evictFromCache(List<String> shortCodes) {
+        try {
+            if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+                twoLevelCacheManager.evictAll("urls", shortCodes);
+                return;
+            }
+            Cache cache = cacheManager.getCache("urls");
+            if (cache != null) {
+                shortCodes.forEach(cache::evict);
+            }
+        } catch (Exception e) {
+            // Expired entries are rejected on read and age out with the cache TTL
+            logger.warn("Failed to evict {} expired URLs from cache", shortCodes.size(), e);
+        }
+    }
+
+    // Sleeps off the rest of the time budget the chunk is allowed at the configured rate
+    private void throttle(int rows, long elapsedNanos) {
+        long budgetNanos = TimeUnit.SECONDS.toNanos(rows) / maxRowsPerSecond;
+        long sleepMillis = TimeUnit.NANOSECONDS.toMillis(budgetNanos - elapsedNanos);
+        if (sleepMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Cursor(LocalDateTime expiresAt, long id) {
+    }
+}
@@ -1,32 +1,78 @@
 package com.example.urlshortener.service;
 
+import com.example.urlshortener.util.IpAddress;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.maxmind.db.CHMCache;
+import com.maxmind.db.Reader;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.model.CityResponse;
 import com.maxmind.geoip2.record.City;
 import com.maxmind.geoip2.record.Country;
 import com.maxmind.geoip2.record.Location;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
-import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Resolves client IPs to locations from a MaxMind database. Results are cached
+ * per address (or per network prefix), IPs are parsed as literals only so no
+ * DNS lookup can happen, and a replaced database file is picked up by
+ * {@link #reloadIfChanged()} without blocking lookups in flight. A replaced
+ * reader is closed one check later, once lookups that started on it are done.
+ */
 @Service
 public class GeoLocationService {
     
     private static final Logger logger = LoggerFactory.getLogger(GeoLocationService.class);
     
+    // Cached for addresses the database has no entry for; Caffeine does not store nulls
+    private static final LocationInfo NOT_FOUND = new LocationInfo();
+    
     @Value("${geoip.database-path}")
     private String databasePath;
     
     @Value("${geoip.enabled}")
     private boolean geoipEnabled;
     
-    private DatabaseReader databaseReader;
+    @Value("${geoip.file-mode}")
+    private String fileMode;
+    
+    @Value("${geoip.cache.maximum-size}")
+    private long cacheMaximumSize;
+    
+    @Value("${geoip.cache.key}")
+    private String cacheKey;
+    
+    @Value("${geoip.cache.expire-after-write}")
+    private long cacheExpireAfterWrite;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private volatile DatabaseReader databaseReader;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    
+    // Replaced by the last reload but possibly still in use by lookups; guarded by reloadLock
+    private DatabaseReader retiredReader;
+    
+    // Identity of the last file tried, so a broken file is not retried on every check
+    private long seenLastModified;
+    private long seenLength;
+    
+    private Cache<IpAddress, LocationInfo> locationCache;
 
     @PostConstruct
     public void init() {
@@ -35,30 +81,106 @@ public class GeoLocationService {
             return;
         }
         
+        locationCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                // Bounds how long a result computed on a replaced database can outlive the reload
+                .expireAfterWrite(Duration.ofSeconds(cacheExpireAfterWrite))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, locationCache, "geoip");
+        
+        File database = new File(databasePath);
+        if (!database.exists()) {
+            logger.warn("GeoIP database not found at: {}. Geographic features stay disabled until it appears.", databasePath);
+            return;
+        }
+        
         try {
-            File database = new File(databasePath);
-            if (database.exists()) {
-                databaseReader = new DatabaseReader.Builder(database).build();
-                logger.info("GeoIP database loaded successfully from: {}", databasePath);
-            } else {
-                logger.warn("GeoIP database not found at: {}. Geographic features will be disabled.", databasePath);
-                geoipEnabled = false;
-            }
+            load(database);
+            logger.info("GeoIP database loaded successfully from: {} ({} mode)", databasePath, fileMode);
         } catch (IOException e) {
             logger.error("Failed to load GeoIP database: {}", e.getMessage());
-            geoipEnabled = false;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        reloadLock.lock();
+        try {
+            closeQuietly(retiredReader);
+            retiredReader = null;
+            closeQuietly(databaseReader);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Swaps in the database file if it was replaced since it was loaded. Lookups
+     * keep using the previous reader until the new one is fully opened. Replace
+     * the file by renaming a complete copy over it: a memory-mapped reader sees
+     * in-place writes.
+     */
+    public void reloadIfChanged() {
+        if (!geoipEnabled) {
+            return;
+        }
+        
+        reloadLock.lock();
+        try {
+            // Retired a full reload interval ago, so no lookup can still be reading it
+            closeQuietly(retiredReader);
+            retiredReader = null;
+            reload();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void reload() {
+        File database = new File(databasePath);
+        if (!database.exists()
+                || (database.lastModified() == seenLastModified && database.length() == seenLength)) {
+            return;
+        }
+        
+        DatabaseReader previous = databaseReader;
+        try {
+            load(database);
+            locationCache.invalidateAll();
+            retiredReader = previous;
+            logger.info("GeoIP database reloaded from: {}", databasePath);
+        } catch (IOException e) {
+            logger.error("Failed to reload GeoIP database, keeping the previous one: {}", e.getMessage());
         }
     }
 
     public LocationInfo getLocationInfo(String ipAddress) {
-        if (!geoipEnabled || databaseReader == null) {
+        IpAddress address = IpAddress.parse(ipAddress);
+        return address != null ? getLocationInfo(address) : null;
+    }
+
+    public LocationInfo getLocationInfo(IpAddress address) {
+        DatabaseReader reader = databaseReader;
+        if (reader == null) {
             return null;
         }
         
+        // Prefix keys trade precision for hit rate: one lookup serves a whole /24 or /48
+        IpAddress key = "prefix".equals(cacheKey) ? address.mask(address.isIpv4() ? 24 : 48) : address;
+        // A null from lookup (a failed read) is returned without being cached
+        LocationInfo locationInfo = locationCache.get(key, k -> lookup(reader, address));
+        return locationInfo != NOT_FOUND ? locationInfo : null;
+    }
+
+    private LocationInfo lookup(DatabaseReader reader, IpAddress address) {
         try {
-            InetAddress inetAddress = InetAddress.getByName(ipAddress);
-            CityResponse response = databaseReader.city(inetAddress);
+            Optional<CityResponse> result = reader.tryCity(address.toInetAddress());
+            if (result.isEmpty()) {
+                return NOT_FOUND;
+            }
             
+            CityResponse response = result.get();
             Country country = response.getCountry();
             City city = response.getCity();
             Location location = response.getLocation();
@@ -73,11 +195,33 @@ public class GeoLocationService {
             return locationInfo;
             
         } catch (Exception e) {
-            logger.debug("Failed to get location info for IP: {}", ipAddress, e);
+            // Only a definite miss is cached; read errors may not repeat
+            logger.debug("Failed to get location info for IP: {}", address, e);
             return null;
         }
     }
 
+    private void load(File database) throws IOException {
+        seenLastModified = database.lastModified();
+        seenLength = database.length();
+        
+        databaseReader = new DatabaseReader.Builder(database)
+                .fileMode("memory".equals(fileMode) ? Reader.FileMode.MEMORY : Reader.FileMode.MEMORY_MAPPED)
+                .withCache(new CHMCache())
+                .build();
+    }
+
+    private static void closeQuietly(DatabaseReader reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close GeoIP reader", e);
+        }
+    }
+
     public static class LocationInfo {
         private String country;
         private String countryCode;
@@ -0,0 +1,307 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.repository.UrlRepository;
+import com.example.urlshortener.util.SpaceSaving;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Real-time most clicked URLs for the last hour, the last 24 hours and all
+ * time. Redirects only bump a striped counter; {@link #refresh()} folds the
+ * counts into Space-Saving summaries, so memory stays bounded however many
+ * URLs are clicked. The rolling windows are rings of per-interval summaries
+ * merged on refresh. Optionally every node publishes its rolling summaries to
+ * Redis and serves the merged cluster-wide ranking for those windows. The
+ * all-time ranking is reloaded from the stored click counts by
+ * {@link #rebuildAllTime()}; they already cover the whole cluster, so every
+ * node serves the same ranking, at most one rebuild interval behind.
+ */
+@Service
+public class PopularUrlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopularUrlService.class);
+
+    private static final String KEY_PREFIX = "url-shortener:popular:";
+    private static final String NODES_KEY = KEY_PREFIX + "nodes";
+
+    public enum Window {
+        HOUR("1h"), DAY("24h"), ALL("all");
+
+        private final String label;
+
+        Window(String label) {
+            this.label = label;
+        }
+
+        public static Window fromLabel(String label) {
+            for (Window window : values()) {
+                if (window.label.equalsIgnoreCase(label)) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("Unknown window: " + label + " (expected 1h, 24h or all)");
+        }
+    }
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${url-shortener.popular.capacity}")
+    private int capacity;
+
+    @Value("${url-shortener.popular.top-size}")
+    private int topSize;
+
+    @Value("${url-shortener.popular.redis.enabled}")
+    private boolean redisEnabled;
+
+    @Value("${url-shortener.popular.redis.sync-interval}")
+    private long syncIntervalSeconds;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Clicks since the last refresh
+    private final ConcurrentHashMap<Long, PendingClicks> pending = new ConcurrentHashMap<>();
+
+    private RollingWindow lastHour;
+    private RollingWindow lastDay;
+
+    // Most clicked active URLs by stored click count; null until first loaded
+    private volatile List<SpaceSaving.Entry> allTimeTop;
+
+    private volatile Map<Window, List<SpaceSaving.Entry>> localTop = new EnumMap<>(Window.class);
+    // Merged rolling windows of all nodes; null when not syncing with Redis
+    private volatile Map<Window, List<SpaceSaving.Entry>> clusterTop;
+
+    @PostConstruct
+    public void init() {
+        lastHour = new RollingWindow(Duration.ofMinutes(5), 12, capacity);
+        lastDay = new RollingWindow(Duration.ofHours(1), 24, capacity);
+    }
+
+    public void record(Long urlId) {
+        long clicks = 1;
+        while (clicks > 0) {
+            PendingClicks counter = pending.computeIfAbsent(urlId, id -> new PendingClicks());
+            counter.clicks.add(clicks);
+            if (!counter.retired) {
+                return;
+            }
+            // Refresh removed this counter meanwhile; move whatever it has not folded in
+            clicks = counter.clicks.sumThenReset();
+        }
+    }
+
+    /**
+     * Ranking for the window, highest first, at most top-size entries. Null
+     * while the all-time ranking is not available yet.
+     */
+    public List<SpaceSaving.Entry> getTop(Window window) {
+        if (window == Window.ALL) {
+            return allTimeTop;
+        }
+        Map<Window, List<SpaceSaving.Entry>> top = clusterTop != null ? clusterTop : localTop;
+        return top.getOrDefault(window, List.of());
+    }
+
+    // Folds pending clicks into the summaries and republishes the rankings
+    public synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, PendingClicks> entry : pending.entrySet()) {
+            PendingClicks counter = entry.getValue();
+            long clicks = counter.clicks.sumThenReset();
+            if (clicks == 0 && pending.remove(entry.getKey(), counter)) {
+                // Clicks added before record() sees the flag are folded in here, later ones go to a new counter
+                counter.retired = true;
+                clicks = counter.clicks.sumThenReset();
+            }
+            if (clicks > 0) {
+                lastHour.offer(now, entry.getKey(), clicks);
+                lastDay.offer(now, entry.getKey(), clicks);
+            }
+        }
+
+        Map<Window, List<SpaceSaving.Entry>> top = new EnumMap<>(Window.class);
+        top.put(Window.HOUR, lastHour.top(now, topSize));
+        top.put(Window.DAY, lastDay.top(now, topSize));
+        localTop = top;
+    }
+
+    /**
+     * Reloads the all-time ranking from the stored click counts. They lag the
+     * redirects by the click flush interval, which matters little all-time.
+     */
+    public void rebuildAllTime() {
+        List<SpaceSaving.Entry> top = new ArrayList<>();
+        for (Object[] row : urlRepository.findMostClickedActive(PageRequest.of(0, topSize))) {
+            top.add(new SpaceSaving.Entry((Long) row[0], (Long) row[1], 0));
+        }
+        allTimeTop = List.copyOf(top);
+    }
+
+    // Cold start: until this completes the all-time ranking is served from the database directly
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAllTime() {
+        try {
+            rebuildAllTime();
+            logger.info("Loaded all-time popular URL ranking with {} URLs", allTimeTop.size());
+        } catch (Exception e) {
+            logger.error("Failed to load all-time popular URL ranking, serving it from the database", e);
+        }
+    }
+
+    /**
+     * Publishes this node's rolling summaries to Redis and reads back the union
+     * over all live nodes. Each node contributes at most capacity members per window.
+     */
+    public void syncWithRedis() {
+        if (!redisEnabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long ttlSeconds = syncIntervalSeconds * 3;
+        Map<Window, List<SpaceSaving.Entry>> summaries = summaries(now);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                for (Map.Entry<Window, List<SpaceSaving.Entry>> summary : summaries.entrySet()) {
+                    String key = nodeKey(summary.getKey(), nodeId);
+                    redis.del(key);
+                    for (SpaceSaving.Entry entry : summary.getValue()) {
+                        redis.zAdd(key, entry.count(), Long.toString(entry.key()));
+                    }
+                    redis.expire(key, ttlSeconds);
+                }
+                redis.zAdd(NODES_KEY, now, nodeId);
+                redis.zRemRangeByScore(NODES_KEY, 0, now - ttlSeconds * 1000);
+                return null;
+            });
+
+            Set<String> nodes = redisTemplate.opsForZSet().rangeByScore(NODES_KEY, now - ttlSeconds * 1000, Double.MAX_VALUE);
+            if (nodes == null || nodes.isEmpty()) {
+                return;
+            }
+
+            Map<Window, List<SpaceSaving.Entry>> merged = new EnumMap<>(Window.class);
+            for (Window window : summaries.keySet()) {
+                List<String> keys = nodes.stream().map(node -> nodeKey(window, node)).toList();
+                String destination = KEY_PREFIX + window.label + ":merged:" + nodeId;
+                redisTemplate.opsForZSet().unionAndStore(keys.get(0), keys.subList(1, keys.size()), destination);
+                Set<ZSetOperations.TypedTuple<String>> tuples =
+                        redisTemplate.opsForZSet().reverseRangeWithScores(destination, 0, topSize - 1);
+                redisTemplate.delete(destination);
+
+                List<SpaceSaving.Entry> entries = new ArrayList<>();
+                if (tuples != null) {
+                    for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                        entries.add(new SpaceSaving.Entry(Long.parseLong(tuple.getValue()),
+                                tuple.getScore().longValue(), 0));
+                    }
+                }
+                merged.put(window, entries);
+            }
+            clusterTop = merged;
+        } catch (Exception e) {
+            // Serve this node's own ranking until Redis is reachable again
+            logger.warn("Failed to sync popular URL ranking with Redis", e);
+            clusterTop = null;
+        }
+    }
+
+    private synchronized Map<Window, List<SpaceSaving.Entry>> summaries(long now) {
+        Map<Window, List<SpaceSaving.Entry>> summaries = new EnumMap<>(Window.class);
+        summaries.put(Window.HOUR, lastHour.top(now, capacity));
+        summaries.put(Window.DAY, lastDay.top(now, capacity));
+        return summaries;
+    }
+
+    private static String nodeKey(Window window, String node) {
+        return KEY_PREFIX + window.label + ":" + node;
+    }
+
+    // Retired once refresh has removed it from the map; see record()
+    private static final class PendingClicks {
+        final LongAdder clicks = new LongAdder();
+        volatile boolean retired;
+    }
+
+    /**
+     * Sliding window made of a ring of per-interval summaries. Intervals that
+     * fall out of the window are reset when their slot is reused.
+     */
+    private static final class RollingWindow {
+        private final long bucketMillis;
+        private final int capacity;
+        private final SpaceSaving[] buckets;
+        private final long[] bucketIndexes;
+
+        RollingWindow(Duration bucket, int bucketCount, int capacity) {
+            this.bucketMillis = bucket.toMillis();
+            this.capacity = capacity;
+            this.buckets = new SpaceSaving[bucketCount];
+            this.bucketIndexes = new long[bucketCount];
+            Arrays.fill(bucketIndexes, -1);
+        }
+
+        void offer(long now, long key, long clicks) {
+            long index = now / bucketMillis;
+            int slot = (int) (index % buckets.length);
+            if (bucketIndexes[slot] != index) {
+                buckets[slot] = new SpaceSaving(capacity);
+                bucketIndexes[slot] = index;
+            }
+            buckets[slot].offer(key, clicks);
+        }
+
+        // Sums the live intervals; errors add up the same way
+        List<SpaceSaving.Entry> top(long now, int limit) {
+            long oldest = now / bucketMillis - buckets.length + 1;
+            Map<Long, long[]> merged = new HashMap<>();
+            for (int slot = 0; slot < buckets.length; slot++) {
+                if (buckets[slot] == null || bucketIndexes[slot] < oldest) {
+                    continue;
+                }
+                for (SpaceSaving.Entry entry : buckets[slot].top(capacity)) {
+                    long[] totals = merged.computeIfAbsent(entry.key(), k -> new long[2]);
+                    totals[0] += entry.count();
+                    totals[1] += entry.error();
+                }
+            }
+            return merged.entrySet().stream()
+                    .map(e -> new SpaceSaving.Entry(e.getKey(), e.getValue()[0], e.getValue()[1]))
+                    .sorted(Comparator.comparingLong(SpaceSaving.Entry::count).reversed())
+                    .limit(limit)
+                    .toList();
+        }
+    }
+}
@@ -1,22 +1,48 @@
 package com.example.urlshortener.service;
 
+import com.example.urlshortener.util.IpAddress;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
 import io.github.bucket4j.Refill;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimization;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class RateLimitingService {
     
     private static final Logger logger = LoggerFactory.getLogger(RateLimitingService.class);
     
+    private static final String URL_ACCESS_PREFIX = "url_access:";
+    private static final String REDIS_KEY_PREFIX = "url-shortener:rate-limit:";
+    
+    // Tag in the upper half of packed IPv4 keys, so they never collide with other key types
+    private static final long URL_ACCESS_TAG = 1L << 32;
+    
+    // Rough retained sizes used by the weigher: cache node plus a two-limit bucket, and key objects
+    private static final int ENTRY_BYTES = 400;
+    private static final int LONG_KEY_BYTES = 16;
+    private static final int STRING_KEY_BYTES = 48;
+    
     @Value("${url-shortener.rate-limiting.enabled}")
     private boolean rateLimitingEnabled;
     
@@ -26,15 +52,86 @@ public class RateLimitingService {
     @Value("${url-shortener.rate-limiting.requests-per-hour}")
     private int requestsPerHour;
     
-    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    @Value("${url-shortener.rate-limiting.bulk-items-per-hour}")
+    private int bulkItemsPerHour;
+    
+    @Value("${url-shortener.rate-limiting.bucket-store.idle-timeout}")
+    private long bucketIdleTimeoutSeconds;
+    
+    @Value("${url-shortener.rate-limiting.bucket-store.max-memory-mb}")
+    private long bucketStoreMaxMemoryMb;
+    
+    @Value("${url-shortener.rate-limiting.distributed.prefetch-tokens}")
+    private long prefetchTokens;
+    
+    @Value("${url-shortener.rate-limiting.distributed.prefetch-timeout-ms}")
+    private long prefetchTimeoutMs;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Present only when rate-limiting.mode is distributed
+    @Autowired(required = false)
+    private ProxyManager<byte[]> proxyManager;
+    
+    // Lets each node spend a batch of tokens locally before syncing with Redis
+    private Optimization prefetchOptimization;
+    
+    private Counter redisErrorCounter;
+    
+    // Keyed by a packed Long for IPv4 access keys and by the String key otherwise
+    private Cache<Object, Bucket> buckets;
+    
+    // Configurations are immutable, so every bucket shares the same instances
+    private BucketConfiguration standardConfiguration;
+    private BucketConfiguration bulkConfiguration;
+    private BucketConfiguration premiumConfiguration;
+
+    @PostConstruct
+    public void init() {
+        standardConfiguration = createConfiguration(requestsPerMinute, requestsPerHour);
+        bulkConfiguration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(bulkItemsPerHour, Refill.intervally(bulkItemsPerHour, Duration.ofHours(1))))
+                .build();
+        // Premium users get higher limits
+        premiumConfiguration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(requestsPerMinute * 5, Refill.intervally(requestsPerMinute * 5, Duration.ofMinutes(1))))
+                .addLimit(Bandwidth.classic(requestsPerHour * 5, Refill.intervally(requestsPerHour * 5, Duration.ofHours(1))))
+                .build();
+        
+        if (proxyManager != null) {
+            // A node may overshoot a limit by at most prefetch-tokens before it syncs
+            prefetchOptimization = Optimizations.predicting(
+                    new DelayParameters(prefetchTokens, Duration.ofMillis(prefetchTimeoutMs)));
+            logger.info("Distributed rate limiting enabled (prefetch {} tokens / {} ms)", prefetchTokens, prefetchTimeoutMs);
+        }
+        
+        // A bucket idle for the longest refill window is full again, so dropping it loses nothing
+        if (bucketIdleTimeoutSeconds < Duration.ofHours(1).toSeconds()) {
+            logger.warn("Rate limit bucket idle timeout of {}s is shorter than the hourly refill window; " +
+                    "evicted clients regain their full hourly allowance early", bucketIdleTimeoutSeconds);
+        }
+        
+        buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofSeconds(bucketIdleTimeoutSeconds))
+                .maximumWeight(bucketStoreMaxMemoryMb * 1024 * 1024)
+                .weigher((Object key, Bucket bucket) -> ENTRY_BYTES
+                        + (key instanceof Long ? LONG_KEY_BYTES : STRING_KEY_BYTES + ((String) key).length()))
+                .recordStats()
+                .build();
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rateLimitBuckets");
+        meterRegistry.gauge("urlshortener.ratelimit.buckets.memory", this, RateLimitingService::getEstimatedMemoryBytes);
+        redisErrorCounter = meterRegistry.counter("urlshortener.ratelimit.redis.errors");
+    }
 
     public boolean isAllowed(String key) {
         if (!rateLimitingEnabled) {
             return true;
         }
         
-        Bucket bucket = buckets.computeIfAbsent(key, this::createBucket);
-        boolean allowed = bucket.tryConsume(1);
+        Bucket bucket = buckets.get(storeKey(key), k -> createBucket(key));
+        boolean allowed = tryConsume(bucket, key, 1);
         
         if (!allowed) {
             logger.warn("Rate limit exceeded for key: {}", key);
@@ -48,8 +145,8 @@ public class RateLimitingService {
             return true;
         }
         
-        Bucket bucket = buckets.computeIfAbsent(key, this::createBucket);
-        boolean allowed = bucket.tryConsume(tokens);
+        Bucket bucket = buckets.get(storeKey(key), k -> createBucket(key));
+        boolean allowed = tryConsume(bucket, key, tokens);
         
         if (!allowed) {
             logger.warn("Rate limit exceeded for key: {} (requested {} tokens)", key, tokens);
@@ -58,12 +155,49 @@ public class RateLimitingService {
         return allowed;
     }
 
+    /**
+     * Takes one token from the bucket for the key, creating it with the given
+     * configuration on first use. The probe tells how long to wait when rejected.
+     */
+    public ConsumptionProbe tryConsume(String key, BucketConfiguration configuration) {
+        if (!rateLimitingEnabled) {
+            return ConsumptionProbe.consumed(Long.MAX_VALUE, 0);
+        }
+        
+        Bucket bucket = buckets.get(storeKey(key), k -> newBucket(key, configuration));
+        try {
+            ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+            if (!probe.isConsumed()) {
+                logger.warn("Rate limit exceeded for key: {}", key);
+            }
+            return probe;
+        } catch (RuntimeException e) {
+            redisErrorCounter.increment();
+            logger.warn("Rate limit check failed for key {}, allowing request: {}", key, e.getMessage());
+            return ConsumptionProbe.consumed(0, 0);
+        }
+    }
+
+    // Unset limits fall back to the global per-minute and per-hour values
+    public BucketConfiguration createConfiguration(Integer perMinute, Integer perHour) {
+        int minute = perMinute != null ? perMinute : requestsPerMinute;
+        int hour = perHour != null ? perHour : requestsPerHour;
+        return BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(minute, Refill.intervally(minute, Duration.ofMinutes(1))))
+                .addLimit(Bandwidth.classic(hour, Refill.intervally(hour, Duration.ofHours(1))))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return rateLimitingEnabled;
+    }
+
     public long getAvailableTokens(String key) {
         if (!rateLimitingEnabled) {
             return Long.MAX_VALUE;
         }
         
-        Bucket bucket = buckets.computeIfAbsent(key, this::createBucket);
+        Bucket bucket = buckets.get(storeKey(key), k -> createBucket(key));
         return bucket.getAvailableTokens();
     }
 
@@ -72,35 +206,78 @@ public class RateLimitingService {
             return Duration.ZERO;
         }
         
-        Bucket bucket = buckets.computeIfAbsent(key, this::createBucket);
+        Bucket bucket = buckets.get(storeKey(key), k -> createBucket(key));
         return Duration.ofNanos(bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill());
     }
 
     private Bucket createBucket(String key) {
         logger.debug("Creating rate limit bucket for key: {}", key);
+        return newBucket(key, standardConfiguration);
+    }
+
+    // Local bucket, or a proxy to the bucket state shared through Redis
+    private Bucket newBucket(String key, BucketConfiguration configuration) {
+        if (proxyManager != null) {
+            return proxyManager.builder()
+                    .withOptimization(prefetchOptimization)
+                    .build(redisKey(key), configuration);
+        }
         
-        // Create bandwidth limits
-        Bandwidth minuteLimit = Bandwidth.classic(requestsPerMinute, Refill.intervally(requestsPerMinute, Duration.ofMinutes(1)));
-        Bandwidth hourLimit = Bandwidth.classic(requestsPerHour, Refill.intervally(requestsPerHour, Duration.ofHours(1)));
-        
-        return Bucket4j.builder()
-                .addLimit(minuteLimit)
-                .addLimit(hourLimit)
-                .build();
+        LocalBucketBuilder builder = Bucket4j.builder();
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+
+    // Redis outages fail open rather than rejecting every request
+    private boolean tryConsume(Bucket bucket, String key, long tokens) {
+        try {
+            return bucket.tryConsume(tokens);
+        } catch (RuntimeException e) {
+            redisErrorCounter.increment();
+            logger.warn("Rate limit check failed for key {}, allowing request: {}", key, e.getMessage());
+            return true;
+        }
+    }
+
+    private static byte[] redisKey(String key) {
+        return (REDIS_KEY_PREFIX + key).getBytes(StandardCharsets.UTF_8);
     }
 
     public void clearBucket(String key) {
         logger.debug("Clearing rate limit bucket for key: {}", key);
-        buckets.remove(key);
+        buckets.invalidate(storeKey(key));
+        if (proxyManager != null) {
+            proxyManager.removeProxy(redisKey(key));
+        }
     }
 
+    // In distributed mode only this node's proxies are dropped; shared state expires in Redis
     public void clearAllBuckets() {
         logger.info("Clearing all rate limit buckets");
-        buckets.clear();
+        buckets.invalidateAll();
+    }
+
+    public long getBucketCount() {
+        return buckets.estimatedSize();
     }
 
-    public int getBucketCount() {
-        return buckets.size();
+    public long getEstimatedMemoryBytes() {
+        return buckets.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    // "url_access:a.b.c.d" packs into a Long; anything else keeps its String key
+    private static Object storeKey(String key) {
+        if (key.startsWith(URL_ACCESS_PREFIX)) {
+            long address = IpAddress.parseIpv4(key, URL_ACCESS_PREFIX.length(), key.length());
+            if (address >= 0) {
+                return URL_ACCESS_TAG | address;
+            }
+        }
+        return key;
     }
 
     // Predefined rate limiting methods for different operations
@@ -116,26 +293,28 @@ public class RateLimitingService {
         return isAllowed("analytics:" + userKey);
     }
 
+    // Bulk items draw from their own hourly budget, sized for campaign imports
     public boolean isBulkOperationAllowed(String userKey, int operationCount) {
-        return isAllowed("bulk:" + userKey, operationCount);
+        if (!rateLimitingEnabled) {
+            return true;
+        }
+        
+        String bulkKey = "bulk:" + userKey;
+        Bucket bucket = buckets.get(bulkKey, k -> newBucket(bulkKey, bulkConfiguration));
+        boolean allowed = tryConsume(bucket, bulkKey, operationCount);
+        
+        if (!allowed) {
+            logger.warn("Bulk rate limit exceeded for key: {} (requested {} items)", userKey, operationCount);
+        }
+        
+        return allowed;
     }
 
     // Custom rate limits for premium users
     public boolean isPremiumUserAllowed(String userKey) {
         String premiumKey = "premium:" + userKey;
-        Bucket bucket = buckets.computeIfAbsent(premiumKey, k -> createPremiumBucket());
-        return bucket.tryConsume(1);
-    }
-
-    private Bucket createPremiumBucket() {
-        // Premium users get higher limits
-        Bandwidth minuteLimit = Bandwidth.classic(requestsPerMinute * 5, Refill.intervally(requestsPerMinute * 5, Duration.ofMinutes(1)));
-        Bandwidth hourLimit = Bandwidth.classic(requestsPerHour * 5, Refill.intervally(requestsPerHour * 5, Duration.ofHours(1)));
-        
-        return Bucket4j.builder()
-                .addLimit(minuteLimit)
-                .addLimit(hourLimit)
-                .build();
+        Bucket bucket = buckets.get(premiumKey, k -> newBucket(premiumKey, premiumConfiguration));
+        return tryConsume(bucket, premiumKey, 1);
     }
 
     // Admin operations (no rate limiting)
@@ -0,0 +1,89 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.cache.CachedRedirect;
+import com.example.urlshortener.cache.TwoLevelCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * Short code resolution for the reactive redirect mode. The in-process cache
+ * tier is read directly and the Redis tier with non-blocking Lettuce commands,
+ * so a cache hit never holds a thread while waiting for Redis. Only misses
+ * (and expired entries, which have to be evicted) fall back to the blocking
+ * lookup of {@link UrlShortenerService}, on the bounded elastic scheduler.
+ */
+@Service
+@ConditionalOnProperty(name = "url-shortener.redirect.mode", havingValue = "reactive")
+public class ReactiveRedirectService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveRedirectService.class);
+
+    private static final String CACHE_NAME = "urls";
+    private static final String KEY_PREFIX = CacheKeyPrefix.simple().compute(CACHE_NAME);
+
+    @Autowired
+    private UrlShortenerService urlShortenerService;
+
+    @Autowired
+    private ShortCodeFilterService shortCodeFilter;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ReactiveRedisTemplate<String, Object> reactiveUrlCacheTemplate;
+
+    /**
+     * Same contract as {@link UrlShortenerService#resolveShortCode(String)}:
+     * empty if unknown, an IllegalArgumentException error if expired.
+     */
+    public Mono<CachedRedirect> resolve(String shortCode) {
+        if (!shortCodeFilter.mightContainLocally(shortCode)) {
+            // The miss is confirmed with a blocking Redis lookup, off the event loop
+            return resolveBlocking(shortCode);
+        }
+
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache instanceof TwoLevelCache twoLevelCache) {
+            Cache.ValueWrapper local = twoLevelCache.getLocal(shortCode);
+            if (local != null) {
+                return fromCache(shortCode, local.get());
+            }
+        }
+
+        return reactiveUrlCacheTemplate.opsForValue().get(KEY_PREFIX + shortCode)
+                .onErrorResume(e -> {
+                    // Unreadable entry or Redis unavailable: the database lookup still works
+                    logger.debug("Reactive cache lookup failed for {}", shortCode, e);
+                    return Mono.empty();
+                })
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(cached -> cached.isPresent() ? fromCache(shortCode, cached.get()) : resolveBlocking(shortCode));
+    }
+
+    // A cached null marks a code known not to exist
+    private Mono<CachedRedirect> fromCache(String shortCode, Object value) {
+        if (value instanceof CachedRedirect url) {
+            return url.isExpired() ? resolveBlocking(shortCode) : Mono.just(url);
+        }
+        return Mono.empty();
+    }
+
+    private Mono<CachedRedirect> resolveBlocking(String shortCode) {
+        return Mono.fromCallable(() -> urlShortenerService.resolveShortCode(shortCode))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::justOrEmpty);
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory Bloom filter of every short code ever created. A negative answer
+ * means the code definitely does not exist, which lets redirects for unknown
+ * codes and availability checks for new custom aliases skip the database.
+ * <p>
+ * The filter is built by streaming the urls table once the application is
+ * ready and rebuilt periodically to resize it and forget deleted codes. Until
+ * the first build completes every code is reported as possibly present. Codes
+ * created on other nodes arrive over a Redis channel.
+ * <p>
+ * Channel messages are lost while a subscriber is disconnected, so a local
+ * miss is not final on its own: every new code is also recorded in a Redis
+ * sorted set scored by creation time, which holds the codes of the last two
+ * rebuild intervals, and a local miss is looked up there before it is
+ * rejected. If that lookup fails, or this node's filter is older than the set
+ * reaches back, the code is reported as possibly present and the database
+ * decides.
+ */
+@Service
+public class ShortCodeFilterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShortCodeFilterService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${url-shortener.short-code.filter.enabled}")
+    private boolean filterEnabled;
+
+    @Value("${url-shortener.short-code.filter.expected-insertions}")
+    private long expectedInsertions;
+
+    @Value("${url-shortener.short-code.filter.false-positive-probability}")
+    private double falsePositiveProbability;
+
+    @Value("${url-shortener.short-code.filter.topic}")
+    private String topic;
+
+    @Value("${url-shortener.short-code.filter.recent-key}")
+    private String recentKey;
+
+    @Value("${url-shortener.short-code.filter.rebuild-interval}")
+    private long rebuildIntervalSeconds;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile BloomFilter filter;
+
+    // Filter being rebuilt; receives new codes too so none are missed during the swap
+    private volatile BloomFilter building;
+
+    // Start of the scan that built the current filter; codes committed before it are in the filter
+    private volatile long builtAt;
+
+    // Codes that could not be recorded in the recent set, retried by registerPending()
+    private final Queue<String> unregistered = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong approximateSize = new AtomicLong();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        rejectedCounter = meterRegistry.counter("urlshortener.shortcode.filter.rejected");
+        meterRegistry.gauge("urlshortener.shortcode.filter.size", approximateSize);
+
+        if (filterEnabled) {
+            listenerContainer.addMessageListener((message, pattern) -> onCodeCreated(message.getBody()),
+                    new ChannelTopic(topic));
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * @return false only if the short code has definitely never been created
+     */
+    public boolean mightContain(String shortCode) {
+        if (mightContainLocally(shortCode)) {
+            return true;
+        }
+
+        // The recent set no longer reaches back to when this filter was built
+        if (System.currentTimeMillis() - builtAt > recentRetentionMillis()) {
+            return true;
+        }
+
+        try {
+            if (redisTemplate.opsForZSet().score(recentKey, shortCode) != null) {
+                // Created on another node and its announcement missed
+                addLocally(shortCode);
+                return true;
+            }
+        } catch (Exception e) {
+            logger.debug("Recent short code lookup failed for {}, not rejecting", shortCode, e);
+            return true;
+        }
+
+        rejectedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Local filter only, without the Redis lookup that confirms a miss.
+     */
+    public boolean mightContainLocally(String shortCode) {
+        BloomFilter current = filter;
+        return current == null || current.mightContain(shortCode);
+    }
+
+    /**
+     * Records a newly created short code on this node and announces it to the others.
+     */
+    public void add(String shortCode) {
+        if (!filterEnabled) {
+            return;
+        }
+
+        addLocally(shortCode);
+        if (!register(shortCode)) {
+            unregistered.add(shortCode);
+        }
+        try {
+            redisTemplate.convertAndSend(topic, nodeId + "|" + shortCode);
+        } catch (Exception e) {
+            logger.warn("Failed to publish new short code {}", shortCode, e);
+        }
+    }
+
+    /**
+     * Retries recording codes whose registration in the recent set failed.
+     */
+    public void registerPending() {
+        String shortCode;
+        while ((shortCode = unregistered.peek()) != null) {
+            if (!register(shortCode)) {
+                return;
+            }
+            unregistered.remove();
+        }
+    }
+
+    private boolean register(String shortCode) {
+        try {
+            redisTemplate.opsForZSet().add(recentKey, shortCode, System.currentTimeMillis());
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to record new short code {}, will retry", shortCode, e);
+            return false;
+        }
+    }
+
+    public void rebuild() {
+        if (!filterEnabled) {
+            return;
+        }
+
+        rebuildLock.lock();
+        long startTime = System.currentTimeMillis();
+        try {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM urls", Long.class);
+            long capacity = Math.max(expectedInsertions, (count != null ? count : 0L) * 2);
+
+            BloomFilter rebuilt = BloomFilter.create(capacity, falsePositiveProbability);
+            building = rebuilt;
+
+            AtomicLong loaded = new AtomicLong();
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement("SELECT short_code FROM urls");
+                statement.setFetchSize(1000);
+                return statement;
+            }, resultSet -> {
+                rebuilt.put(resultSet.getString(1));
+                loaded.incrementAndGet();
+            });
+
+            filter = rebuilt;
+            builtAt = startTime;
+            approximateSize.set(loaded.get());
+            trimRecent();
+            logger.info("Short code filter built with {} codes ({} bits) in {} ms",
+                    loaded.get(), rebuilt.bitSize(), System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            // Keep the previous filter; a missing one only disables the fast path
+            logger.error("Failed to build short code filter", e);
+        } finally {
+            building = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    private void trimRecent() {
+        try {
+            redisTemplate.opsForZSet().removeRangeByScore(recentKey, 0, System.currentTimeMillis() - recentRetentionMillis());
+        } catch (Exception e) {
+            logger.warn("Failed to trim recent short codes", e);
+        }
+    }
+
+    // Two intervals, so a node whose last rebuild failed still finds every code created since its filter
+    private long recentRetentionMillis() {
+        return TimeUnit.SECONDS.toMillis(rebuildIntervalSeconds * 2);
+    }
+
+    // Message format: nodeId|shortCode
+    private void onCodeCreated(byte[] body) {
+        String message = new String(body, StandardCharsets.UTF_8);
+        int separator = message.indexOf('|');
+        if (separator > 0 && !message.startsWith(nodeId + "|")) {
+            addLocally(message.substring(separator + 1));
+        }
+    }
+
+    private void addLocally(String shortCode) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(shortCode);
+        }
+
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(shortCode);
+        }
+        approximateSize.incrementAndGet();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.entity.Url;
+import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.repository.UrlAnalyticsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unique visitor counts per URL. In approximate mode every ingested click is
+ * added to a per-URL, per-day HyperLogLog in Redis; a count over any date range
+ * is a single PFCOUNT over that range's daily keys (about 0.81% standard error,
+ * 12 KB per key at most). Exact mode, and any Redis failure, falls back to
+ * COUNT(DISTINCT ip_address) over the raw analytics rows.
+ * <p>
+ * Keys are url-shortener:uv:{urlId}:yyyyMMdd. The braces are a Redis Cluster
+ * hash tag: all days of a URL map to one slot, so the multi-key PFCOUNT and
+ * DEL work on a cluster. Registers written under the untagged names used
+ * before are no longer read and expire with their TTL.
+ */
+@Service
+public class UniqueVisitorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UniqueVisitorService.class);
+
+    private static final String KEY_PREFIX = "url-shortener:uv:";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private UrlAnalyticsRepository analyticsRepository;
+
+    @Value("${url-shortener.analytics.unique-visitors.mode}")
+    private String mode;
+
+    @Value("${url-shortener.analytics.retention-days}")
+    private int retentionDays;
+
+    public boolean isApproximate() {
+        return "approximate".equals(mode);
+    }
+
+    /**
+     * Adds the visitors of an ingested batch to their daily registers.
+     */
+    public void record(List<UrlAnalytics> batch) {
+        if (!isApproximate()) {
+            return;
+        }
+
+        Map<String, Set<String>> visitorsByKey = new HashMap<>();
+        for (UrlAnalytics analytics : batch) {
+            if (analytics.getIpAddress() != null) {
+                String key = key(analytics.getUrlId(), analytics.getAccessedAt().toLocalDate());
+                visitorsByKey.computeIfAbsent(key, k -> new HashSet<>()).add(analytics.getIpAddress());
+            }
+        }
+        if (visitorsByKey.isEmpty()) {
+            return;
+        }
+
+        // Registers outlive the raw rows by a day so range counts never see a half-expired window
+        long ttlSeconds = (retentionDays + 1L) * 86400;
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                visitorsByKey.forEach((key, visitors) -> {
+                    stringConnection.pfAdd(key, visitors.toArray(new String[0]));
+                    stringConnection.expire(key, ttlSeconds);
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Failed to record unique visitors for {} registers", visitorsByKey.size(), e);
+        }
+    }
+
+    /**
+     * Unique visitors since the URL was created, limited to the retention window.
+     */
+    public UniqueVisitors getUniqueVisitors(Url url) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(retentionDays);
+        if (url.getCreatedAt() != null && url.getCreatedAt().toLocalDate().isAfter(from)) {
+            from = url.getCreatedAt().toLocalDate();
+        }
+        return getUniqueVisitors(url.getId(), from, today);
+    }
+
+    /**
+     * Unique visitors between two days, both inclusive.
+     */
+    public UniqueVisitors getUniqueVisitors(Long urlId, LocalDate from, LocalDate to) {
+        if (isApproximate()) {
+            try {
+                Long count = redisTemplate.opsForHyperLogLog().size(keys(urlId, from, to));
+                return new UniqueVisitors(count != null ? count : 0L, true);
+            } catch (Exception e) {
+                logger.warn("Unique visitor estimate unavailable for URL ID: {}, counting exactly", urlId, e);
+            }
+        }
+
+        Long count = analyticsRepository.getUniqueVisitorsBetween(urlId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        return new UniqueVisitors(count != null ? count : 0L, false);
+    }
+
+    public void delete(Long urlId) {
+        if (!isApproximate()) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        try {
+            redisTemplate.delete(List.of(keys(urlId, today.minusDays(retentionDays + 1L), today)));
+        } catch (Exception e) {
+            logger.warn("Failed to delete unique visitor registers for URL ID: {}", urlId, e);
+        }
+    }
+
+    private String[] keys(Long urlId, LocalDate from, LocalDate to) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            keys.add(key(urlId, day));
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    private static String key(Long urlId, LocalDate day) {
+        return KEY_PREFIX + "{" + urlId + "}:" + day.format(DAY_FORMAT);
+    }
+
+    public static class UniqueVisitors {
+        private final long count;
+        private final boolean estimated;
+
+        public UniqueVisitors(long count, boolean estimated) {
+            this.count = count;
+            this.estimated = estimated;
+        }
+
+        public long getCount() { return count; }
+        public boolean isEstimated() { return estimated; }
+    }
+}
@@ -1,25 +1,49 @@
 package com.example.urlshortener.service;
 
+import com.example.urlshortener.cache.CachedRedirect;
+import com.example.urlshortener.dto.BulkShortenResult;
+import com.example.urlshortener.dto.CursorPage;
 import com.example.urlshortener.dto.ShortenUrlRequest;
 import com.example.urlshortener.dto.ShortenUrlResponse;
+import com.example.urlshortener.dto.UrlSummary;
 import com.example.urlshortener.entity.Url;
 import com.example.urlshortener.repository.UrlRepository;
+import com.example.urlshortener.shortcode.ShortCodeGenerator;
+import com.example.urlshortener.util.PageCursor;
+import com.example.urlshortener.util.SpaceSaving;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,26 +52,69 @@ public class UrlShortenerService {
     
     private static final Logger logger = LoggerFactory.getLogger(UrlShortenerService.class);
     
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+    
     @Autowired
     private UrlRepository urlRepository;
     
     @Autowired
     private PasswordEncoder passwordEncoder;
     
-    @Value("${url-shortener.base-url}")
-    private String baseUrl;
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private ClickCounterService clickCounterService;
+    
+    @Autowired
+    private ShortCodeGenerator shortCodeGenerator;
+    
+    @Autowired
+    private ShortCodeFilterService shortCodeFilter;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private AccessGrantService accessGrantService;
     
-    @Value("${url-shortener.short-code.length}")
-    private int shortCodeLength;
+    @Autowired
+    private ExpiredUrlReaper expiredUrlReaper;
+    
+    @Autowired
+    private PopularUrlService popularUrlService;
+    
+    @Autowired
+    private UrlStatsService urlStatsService;
     
-    @Value("${url-shortener.short-code.characters}")
-    private String allowedCharacters;
+    @Value("${url-shortener.base-url}")
+    private String baseUrl;
     
     @Value("${url-shortener.expiration.default-days}")
     private int defaultExpirationDays;
     
-    private final Random random = new Random();
+    @Value("${url-shortener.password-verification.max-concurrent}")
+    private int maxConcurrentPasswordChecks;
+    
+    @Value("${url-shortener.password-verification.wait-ms}")
+    private long passwordCheckWaitMs;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    // Caps the CPU that BCrypt checks on protected links can take
+    private Semaphore passwordChecks;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        passwordChecks = new Semaphore(maxConcurrentPasswordChecks);
+    }
 
+    // Each save commits on its own so a short code clash can be retried
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ShortenUrlResponse shortenUrl(ShortenUrlRequest request, String createdBy, String clientIp, String userAgent) {
         logger.info("Shortening URL: {} for user: {}", request.getUrl(), createdBy);
         
@@ -56,18 +123,97 @@ public class UrlShortenerService {
             throw new IllegalArgumentException("Invalid URL format");
         }
         
-        // Generate or validate short code
-        String shortCode;
+        // Validate custom alias; generated codes are assigned on save
+        String shortCode = null;
         if (request.hasCustomAlias()) {
             shortCode = request.getCustomAlias();
-            if (urlRepository.existsByShortCode(shortCode)) {
+            if (shortCodeFilter.mightContain(shortCode) && urlRepository.existsByShortCode(shortCode)) {
                 throw new IllegalArgumentException("Custom alias already exists");
             }
-        } else {
-            shortCode = generateUniqueShortCode();
         }
         
-        // Create URL entity
+        // Create and save URL entity
+        Url savedUrl = saveNewUrl(newUrl(request, shortCode, createdBy, clientIp, userAgent));
+        announceNewUrl(savedUrl.getShortCode());
+        
+        logger.info("URL shortened successfully: {} -> {}", request.getUrl(), savedUrl.getShortCode());
+        return new ShortenUrlResponse(savedUrl, baseUrl);
+    }
+
+    /**
+     * Shortens one chunk of a bulk request. Items are validated one by one and the
+     * valid ones are inserted in a single batched transaction; an invalid or
+     * clashing item fails on its own without affecting the rest of the chunk.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BulkShortenResult> shortenUrls(List<ShortenUrlRequest> requests, int firstIndex,
+                                               String createdBy, String clientIp, String userAgent) {
+        logger.info("Shortening {} URLs in bulk for user: {}", requests.size(), createdBy);
+        
+        BulkShortenResult[] results = new BulkShortenResult[requests.size()];
+        
+        // Custom aliases already in use, looked up in one query
+        Set<String> candidateAliases = new HashSet<>();
+        for (ShortenUrlRequest request : requests) {
+            if (request.hasCustomAlias() && shortCodeFilter.mightContain(request.getCustomAlias())) {
+                candidateAliases.add(request.getCustomAlias());
+            }
+        }
+        Set<String> usedAliases = candidateAliases.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(urlRepository.findExistingShortCodes(candidateAliases));
+        
+        List<Url> urls = new ArrayList<>(requests.size());
+        List<Integer> positions = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ShortenUrlRequest request = requests.get(i);
+            
+            String error = validate(request);
+            if (error == null && request.hasCustomAlias() && !usedAliases.add(request.getCustomAlias())) {
+                error = "Custom alias already exists";
+            }
+            if (error != null) {
+                results[i] = BulkShortenResult.failed(firstIndex + i, error);
+                continue;
+            }
+            
+            String shortCode = request.hasCustomAlias() ? request.getCustomAlias() : shortCodeGenerator.nextShortCode();
+            urls.add(newUrl(request, shortCode, createdBy, clientIp, userAgent));
+            positions.add(i);
+        }
+        
+        try {
+            transactionTemplate.executeWithoutResult(status -> urlRepository.saveAllAndFlush(urls));
+            urlStatsService.urlsCreated(urls.size());
+            for (int k = 0; k < urls.size(); k++) {
+                results[positions.get(k)] = BulkShortenResult.created(firstIndex + positions.get(k),
+                        new ShortenUrlResponse(urls.get(k), baseUrl));
+            }
+        } catch (DataIntegrityViolationException e) {
+            // An alias was taken concurrently; fall back to item-by-item inserts so only it fails
+            logger.warn("Bulk insert of {} URLs hit a short code clash, inserting individually", urls.size());
+            for (int k = 0; k < urls.size(); k++) {
+                Url url = urls.get(k);
+                url.setId(null);
+                int index = firstIndex + positions.get(k);
+                try {
+                    results[positions.get(k)] = BulkShortenResult.created(index, new ShortenUrlResponse(saveNewUrl(url), baseUrl));
+                } catch (IllegalArgumentException | DataIntegrityViolationException ex) {
+                    results[positions.get(k)] = BulkShortenResult.failed(index, "Short code already exists");
+                }
+            }
+        }
+        
+        for (BulkShortenResult result : results) {
+            if (result.getUrl() != null) {
+                announceNewUrl(result.getUrl().getShortCode());
+            }
+        }
+        
+        return List.of(results);
+    }
+
+    private Url newUrl(ShortenUrlRequest request, String shortCode, String createdBy, String clientIp, String userAgent) {
         Url url = new Url(shortCode, request.getUrl(), createdBy);
         url.setTitle(request.getTitle());
         url.setDescription(request.getDescription());
@@ -79,6 +225,7 @@ public class UrlShortenerService {
         // Set expiration
         if (request.getExpiresAt() != null) {
             url.setExpiresAt(request.getExpiresAt());
+            expiredUrlReaper.noteExpiresAt(request.getExpiresAt());
         } else {
             url.setExpiresAt(LocalDateTime.now().plusDays(defaultExpirationDays));
         }
@@ -88,74 +235,159 @@ public class UrlShortenerService {
             url.setPassword(passwordEncoder.encode(request.getPassword()));
         }
         
-        // Save URL
-        Url savedUrl = urlRepository.save(url);
+        return url;
+    }
+
+    // Bean validation for items that did not pass through @Valid
+    private String validate(ShortenUrlRequest request) {
+        Set<ConstraintViolation<ShortenUrlRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        return isValidUrl(request.getUrl()) ? null : "Invalid URL format";
+    }
+
+    private void announceNewUrl(String shortCode) {
+        shortCodeFilter.add(shortCode);
         
-        logger.info("URL shortened successfully: {} -> {}", request.getUrl(), shortCode);
-        return new ShortenUrlResponse(savedUrl, baseUrl);
+        // A lookup before creation may have cached the code as missing
+        evictUrlFromCache(shortCode);
     }
 
-    @Cacheable(value = "urls", key = "#shortCode")
-    public Optional<Url> findByShortCode(String shortCode) {
+    // Goes through the CacheManager: @Cacheable is not applied on self-invocation from resolveShortCode
+    private Optional<CachedRedirect> findRedirect(String shortCode) {
+        Cache cache = cacheManager.getCache("urls");
+        if (cache != null) {
+            try {
+                Cache.ValueWrapper cached = cache.get(shortCode);
+                if (cached != null) {
+                    return Optional.ofNullable((CachedRedirect) cached.get());
+                }
+            } catch (RuntimeException e) {
+                logger.warn("URL cache lookup failed for {}, reading from the database", shortCode, e);
+            }
+        }
+        
         logger.debug("Finding URL by short code: {}", shortCode);
-        return urlRepository.findByShortCodeAndIsActiveTrue(shortCode);
+        Optional<CachedRedirect> redirect = urlRepository.findByShortCodeAndIsActiveTrue(shortCode).map(CachedRedirect::from);
+        
+        // Expired URLs the reaper has not reached yet are not cached
+        if (cache != null && (redirect.isEmpty() || !redirect.get().isExpired())) {
+            try {
+                cache.put(shortCode, redirect.orElse(null));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to cache URL {}", shortCode, e);
+            }
+        }
+        return redirect;
+    }
+
+    /**
+     * Cached lookup behind the short code filter.
+     * Expiry is checked here rather than left to the reaper, and a cached copy of an expired URL is evicted.
+     *
+     * @throws IllegalArgumentException if the URL has expired
+     */
+    public Optional<CachedRedirect> resolveShortCode(String shortCode) {
+        Optional<CachedRedirect> urlOpt = shortCodeFilter.mightContain(shortCode) ? findRedirect(shortCode) : Optional.empty();
+        if (urlOpt.isPresent() && urlOpt.get().isExpired()) {
+            evictUrlFromCache(shortCode);
+            throw new IllegalArgumentException("Short URL has expired");
+        }
+        return urlOpt;
     }
 
     public String expandUrl(String shortCode, String password) {
         logger.info("Expanding URL for short code: {}", shortCode);
         
-        Optional<Url> urlOpt = findByShortCode(shortCode);
+        Optional<CachedRedirect> urlOpt = resolveShortCode(shortCode);
         if (urlOpt.isEmpty()) {
             throw new IllegalArgumentException("Short URL not found");
         }
         
-        Url url = urlOpt.get();
-        
+        return expandUrl(urlOpt.get(), password, null);
+    }
+
+    /**
+     * Expands an already resolved URL. A valid access grant stands in for the
+     * password; otherwise the password is checked with BCrypt against the
+     * hash loaded from the database, as the cached entry does not hold it.
+     *
+     * @throws IllegalStateException if too many password checks are already running
+     */
+    public String expandUrl(CachedRedirect url, String password, String accessGrant) {
         // Check if URL is expired
         if (url.isExpired()) {
             throw new IllegalArgumentException("Short URL has expired");
         }
         
         // Check password if required
-        if (url.isPasswordProtected()) {
-            if (password == null || !passwordEncoder.matches(password, url.getPassword())) {
+        if (url.isPasswordProtected() && !accessGrantService.isValid(accessGrant, url)) {
+            String encodedPassword = password != null ? urlRepository.findPasswordById(url.id()).orElse(null) : null;
+            if (encodedPassword == null || !matchesPassword(password, encodedPassword)) {
                 throw new IllegalArgumentException("Invalid password");
             }
         }
         
-        return url.getOriginalUrl();
+        return url.originalUrl();
     }
 
-    @Transactional
-    public void recordClick(String shortCode, String clientIp, String userAgent, String referer) {
-        logger.debug("Recording click for short code: {}", shortCode);
+    private boolean matchesPassword(String password, String encodedPassword) {
+        boolean acquired;
+        try {
+            acquired = passwordChecks.tryAcquire(passwordCheckWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new IllegalStateException("Too many password checks in progress");
+        }
         
-        Optional<Url> urlOpt = urlRepository.findByShortCode(shortCode);
-        if (urlOpt.isPresent()) {
-            Url url = urlOpt.get();
-            urlRepository.incrementClickCount(url.getId(), LocalDateTime.now());
-            
-            // Clear cache to ensure fresh data
-            evictUrlFromCache(shortCode);
+        try {
+            return passwordEncoder.matches(password, encodedPassword);
+        } finally {
+            passwordChecks.release();
         }
     }
 
-    public List<ShortenUrlResponse> getUserUrls(String createdBy) {
-        logger.info("Getting URLs for user: {}", createdBy);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void recordClick(CachedRedirect url) {
+        logger.debug("Recording click for short code: {}", url.shortCode());
         
-        List<Url> urls = urlRepository.findByCreatedByAndIsActiveTrue(createdBy);
-        return urls.stream()
-                .map(url -> new ShortenUrlResponse(url, baseUrl))
-                .collect(Collectors.toList());
+        // Counted in memory and written in batches; the cached entry stays valid
+        clickCounterService.increment(url.id());
+        popularUrlService.record(url.id());
+        urlStatsService.recordClick(url.createdBy());
     }
 
     public Page<ShortenUrlResponse> getUserUrls(String createdBy, Pageable pageable) {
         logger.info("Getting paginated URLs for user: {}", createdBy);
         
-        Page<Url> urls = urlRepository.findByCreatedByAndIsActiveTrue(createdBy, pageable);
+        Page<UrlSummary> urls = urlRepository.findSummariesByCreatedBy(createdBy, newestFirst(pageable));
+        return urls.map(url -> new ShortenUrlResponse(url, baseUrl));
+    }
+
+    // No COUNT(*): one extra row tells whether there is a next page
+    public Slice<ShortenUrlResponse> getUserUrlsSlice(String createdBy, Pageable pageable) {
+        logger.info("Getting URL slice for user: {}", createdBy);
+        
+        Slice<UrlSummary> urls = urlRepository.findSummarySliceByCreatedBy(createdBy, newestFirst(pageable));
         return urls.map(url -> new ShortenUrlResponse(url, baseUrl));
     }
 
+    // Keyset pagination; cost does not grow with depth
+    public CursorPage<ShortenUrlResponse> getUserUrls(String createdBy, String cursor, int size) {
+        logger.info("Getting URLs after cursor for user: {}", createdBy);
+        
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size);
+        Slice<UrlSummary> urls = after == null
+                ? urlRepository.findFirstSummariesByCreatedBy(createdBy, limit)
+                : urlRepository.findSummariesByCreatedByBefore(createdBy, after.time(), after.id(), limit);
+        return toCursorPage(urls, size);
+    }
+
     public Optional<ShortenUrlResponse> getUrlDetails(Long id, String createdBy) {
         logger.info("Getting URL details for ID: {} by user: {}", id, createdBy);
         
@@ -177,6 +409,9 @@ public class UrlShortenerService {
         if (urlOpt.isPresent()) {
             Url url = urlOpt.get();
             if (url.getCreatedBy().equals(createdBy)) {
+                if (Boolean.TRUE.equals(url.getIsActive())) {
+                    urlStatsService.urlsDeactivated(1);
+                }
                 url.setIsActive(false);
                 urlRepository.save(url);
                 return true;
@@ -205,6 +440,7 @@ public class UrlShortenerService {
         
         if (request.getExpiresAt() != null) {
             url.setExpiresAt(request.getExpiresAt());
+            expiredUrlReaper.noteExpiresAt(request.getExpiresAt());
         }
         
         if (request.hasPassword()) {
@@ -221,60 +457,155 @@ public class UrlShortenerService {
         return new ShortenUrlResponse(updatedUrl, baseUrl);
     }
 
-    public Page<ShortenUrlResponse> getPopularUrls(Pageable pageable) {
-        logger.info("Getting popular URLs");
+    public Page<ShortenUrlResponse> getPopularUrls(PopularUrlService.Window window, Pageable pageable) {
+        logger.info("Getting popular URLs for window: {}", window);
         
-        Page<Url> urls = urlRepository.findMostPopularUrls(pageable);
-        return urls.map(url -> new ShortenUrlResponse(url, baseUrl));
+        List<SpaceSaving.Entry> top = popularUrlService.getTop(window);
+        if (top == null) {
+            // Cold start: the in-memory ranking has not been seeded yet
+            Page<UrlSummary> urls = urlRepository.findPopularSummaries(pageable);
+            return urls.map(url -> new ShortenUrlResponse(url, baseUrl));
+        }
+        
+        List<ShortenUrlResponse> ranked = rankedUrls(top);
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        return new PageImpl<>(ranked.subList(from, to), pageable, ranked.size());
+    }
+
+    /**
+     * Cursor pages over the ranking. The ranking is refreshed continuously, so
+     * a page resumes right after the last URL served wherever it has moved, and
+     * at its old rank if it has dropped out.
+     */
+    public CursorPage<ShortenUrlResponse> getPopularUrls(PopularUrlService.Window window, String cursor, int size) {
+        logger.info("Getting popular URLs after cursor for window: {}", window);
+        
+        PageCursor after = PageCursor.decode(cursor);
+        int from = after == null ? 0 : (int) after.position();
+        
+        List<SpaceSaving.Entry> top = popularUrlService.getTop(window);
+        if (top == null) {
+            // Cold start: offset pages, rounded down to the page holding the cursor if the size changed
+            Slice<UrlSummary> urls = urlRepository.findPopularSummarySlice(PageRequest.of(from / size, size));
+            List<ShortenUrlResponse> content = urls.map(url -> new ShortenUrlResponse(url, baseUrl)).getContent();
+            String next = urls.hasNext() && !content.isEmpty()
+                    ? new PageCursor(urls.getPageable().getOffset() + content.size(),
+                            content.get(content.size() - 1).getId()).encode()
+                    : null;
+            return new CursorPage<>(content, size, next);
+        }
+        
+        List<ShortenUrlResponse> ranked = rankedUrls(top);
+        if (after != null) {
+            for (int i = 0; i < ranked.size(); i++) {
+                if (ranked.get(i).getId() == after.id()) {
+                    from = i + 1;
+                    break;
+                }
+            }
+        }
+        from = Math.min(from, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        String next = to < ranked.size() ? new PageCursor(to, ranked.get(to - 1).getId()).encode() : null;
+        return new CursorPage<>(ranked.subList(from, to), size, next);
+    }
+
+    // One primary key lookup for the whole ranking, kept in ranking order. Inactive
+    // URLs are dropped before paging so totals and positions only count served URLs
+    private List<ShortenUrlResponse> rankedUrls(List<SpaceSaving.Entry> entries) {
+        List<Long> ids = entries.stream().map(SpaceSaving.Entry::key).toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UrlSummary> urlsById = urlRepository.findActiveSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(UrlSummary::id, url -> url));
+        return ids.stream()
+                .map(urlsById::get)
+                .filter(url -> url != null)
+                .map(url -> new ShortenUrlResponse(url, baseUrl))
+                .collect(Collectors.toList());
     }
 
     public Page<ShortenUrlResponse> getRecentUrls(Pageable pageable) {
         logger.info("Getting recent URLs");
         
-        Page<Url> urls = urlRepository.findRecentUrls(pageable);
+        Page<UrlSummary> urls = urlRepository.findSummaries(newestFirst(pageable));
+        return urls.map(url -> new ShortenUrlResponse(url, baseUrl));
+    }
+
+    public Slice<ShortenUrlResponse> getRecentUrlsSlice(Pageable pageable) {
+        logger.info("Getting recent URL slice");
+        
+        Slice<UrlSummary> urls = urlRepository.findSummarySlice(newestFirst(pageable));
         return urls.map(url -> new ShortenUrlResponse(url, baseUrl));
     }
 
-    @Transactional
+    public CursorPage<ShortenUrlResponse> getRecentUrls(String cursor, int size) {
+        logger.info("Getting recent URLs after cursor");
+        
+        PageCursor after = PageCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size);
+        Slice<UrlSummary> urls = after == null
+                ? urlRepository.findFirstSummaries(limit)
+                : urlRepository.findSummariesBefore(after.time(), after.id(), limit);
+        return toCursorPage(urls, size);
+    }
+
+    // Offset listings default to newest first, id breaking ties
+    private static Pageable newestFirst(Pageable pageable) {
+        if (pageable.getSort().isSorted()) {
+            return pageable;
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+    }
+
+    // The next cursor points at the last row served, sorted by (createdAt, id)
+    private CursorPage<ShortenUrlResponse> toCursorPage(Slice<UrlSummary> urls, int size) {
+        List<UrlSummary> content = urls.getContent();
+        String next = null;
+        if (urls.hasNext() && !content.isEmpty()) {
+            UrlSummary last = content.get(content.size() - 1);
+            next = PageCursor.of(last.createdAt(), last.id()).encode();
+        }
+        return new CursorPage<>(content.stream().map(url -> new ShortenUrlResponse(url, baseUrl)).toList(), size, next);
+    }
+
+    // Chunked and throttled; each chunk commits on its own
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public int cleanupExpiredUrls() {
         logger.info("Cleaning up expired URLs");
         
-        int deactivatedCount = urlRepository.deactivateExpiredUrls(LocalDateTime.now());
+        int deactivatedCount = expiredUrlReaper.reap();
         logger.info("Deactivated {} expired URLs", deactivatedCount);
         
         return deactivatedCount;
     }
 
-    private String generateUniqueShortCode() {
-        String shortCode;
-        int attempts = 0;
-        int maxAttempts = 10;
-        
-        do {
-            shortCode = generateRandomShortCode();
-            attempts++;
+    private Url saveNewUrl(Url url) {
+        for (int attempt = 1; ; attempt++) {
+            if (!url.getIsCustom()) {
+                url.setShortCode(shortCodeGenerator.nextShortCode());
+            }
             
-            if (attempts > maxAttempts) {
-                // If we can't find a unique code, increase length
-                shortCode = generateRandomShortCode(shortCodeLength + 1);
-                break;
+            try {
+                Url saved = urlRepository.save(url);
+                urlStatsService.urlCreated();
+                return saved;
+            } catch (DataIntegrityViolationException e) {
+                if (url.getIsCustom()) {
+                    // Same alias created concurrently since the existence check
+                    throw new IllegalArgumentException("Custom alias already exists");
+                }
+                if (attempt >= MAX_SAVE_ATTEMPTS) {
+                    throw e;
+                }
+                // A custom alias can take a code the generator has not handed out yet
+                logger.warn("Generated short code {} is already taken, retrying", url.getShortCode());
+                url.setId(null);
             }
-        } while (urlRepository.existsByShortCode(shortCode));
-        
-        return shortCode;
-    }
-
-    private String generateRandomShortCode() {
-        return generateRandomShortCode(shortCodeLength);
-    }
-
-    private String generateRandomShortCode(int length) {
-        StringBuilder sb = new StringBuilder(length);
-        for (int i = 0; i < length; i++) {
-            int index = random.nextInt(allowedCharacters.length());
-            sb.append(allowedCharacters.charAt(index));
         }
-        return sb.toString();
     }
 
     private boolean isValidUrl(String url) {
@@ -283,24 +614,26 @@ public class UrlShortenerService {
                url.length() <= 2048;
     }
 
-    @CacheEvict(value = "urls", key = "#shortCode")
+    // Evicts through the CacheManager: @CacheEvict is not applied on self-invocation
     private void evictUrlFromCache(String shortCode) {
         logger.debug("Evicting URL from cache: {}", shortCode);
+        Cache cache = cacheManager.getCache("urls");
+        if (cache != null) {
+            cache.evict(shortCode);
+        }
     }
 
-    // Statistics methods
+    // Statistics methods; maintained incrementally, no table scans
     public long getTotalUrls() {
-        return urlRepository.countActiveUrls();
+        return urlStatsService.getActiveUrls();
     }
 
     public long getTotalClicks() {
-        Long totalClicks = urlRepository.getTotalClicks();
-        return totalClicks != null ? totalClicks : 0L;
+        return urlStatsService.getTotalClicks();
     }
 
     public long getUserTotalClicks(String createdBy) {
-        Long totalClicks = urlRepository.getTotalClicksByUser(createdBy);
-        return totalClicks != null ? totalClicks : 0L;
+        return urlStatsService.getUserTotalClicks(createdBy);
     }
 
     public long getUserUrlCount(String createdBy, LocalDateTime since) {
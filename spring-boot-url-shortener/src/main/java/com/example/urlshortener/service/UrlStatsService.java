@@ -0,0 +1,249 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.repository.UrlRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Active URL and click totals maintained incrementally, so reading them is
+ * O(1) instead of scanning the urls table. Changes are counted in striped
+ * in-process counters on top of a baseline loaded from the database. With
+ * Redis enabled the nodes push their deltas to shared counters and read back
+ * the cluster totals. {@link #reconcile()} periodically resets the baseline
+ * from the database to correct any drift (e.g. clicks of another node that
+ * have not been synced, or URLs deactivated outside this service). Per-user
+ * click totals are kept for recently queried users only and reloaded from the
+ * database once they are a reconcile interval old.
+ */
+@Service
+public class UrlStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlStatsService.class);
+
+    private static final String KEY_PREFIX = "url-shortener:stats:";
+    private static final String ACTIVE_URLS_KEY = KEY_PREFIX + "active-urls";
+    private static final String TOTAL_CLICKS_KEY = KEY_PREFIX + "total-clicks";
+    private static final String RECONCILE_LOCK_KEY = KEY_PREFIX + "reconcile-lock";
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private ClickCounterService clickCounterService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${url-shortener.stats.reconcile-interval}")
+    private long reconcileIntervalSeconds;
+
+    @Value("${url-shortener.stats.user-cache-size}")
+    private long userCacheSize;
+
+    @Value("${url-shortener.stats.redis.enabled}")
+    private boolean redisEnabled;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Changes not yet folded into the baseline
+    private final LongAdder activeUrlsDelta = new LongAdder();
+    private final LongAdder totalClicksDelta = new LongAdder();
+
+    private volatile long activeUrlsBase;
+    private volatile long totalClicksBase;
+    private volatile boolean loaded;
+
+    // Guards the baselines; held across database and Redis calls, so not a monitor
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Cache<String, UserClicks> userClicks;
+
+    @PostConstruct
+    public void init() {
+        userClicks = Caffeine.newBuilder()
+                .maximumSize(userCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(reconcileIntervalSeconds))
+                .build();
+    }
+
+    public void urlCreated() {
+        activeUrlsDelta.increment();
+    }
+
+    public void urlsCreated(int count) {
+        activeUrlsDelta.add(count);
+    }
+
+    public void urlsDeactivated(int count) {
+        activeUrlsDelta.add(-count);
+    }
+
+    public void recordClick(String createdBy) {
+        totalClicksDelta.increment();
+        if (createdBy != null) {
+            UserClicks clicks = userClicks.getIfPresent(createdBy);
+            if (clicks != null) {
+                clicks.delta.increment();
+            }
+        }
+    }
+
+    public long getActiveUrls() {
+        ensureLoaded();
+        return activeUrlsBase + activeUrlsDelta.sum();
+    }
+
+    public long getTotalClicks() {
+        ensureLoaded();
+        return totalClicksBase + totalClicksDelta.sum();
+    }
+
+    public long getUserTotalClicks(String createdBy) {
+        UserClicks clicks = userClicks.get(createdBy, user -> {
+            Long total = urlRepository.getTotalClicksByUser(user);
+            return new UserClicks(total != null ? total : 0L);
+        });
+        return clicks.base + clicks.delta.sum();
+    }
+
+    /**
+     * Pushes this node's deltas to the shared Redis counters and reads back
+     * the cluster totals. Deltas that cannot be pushed are kept for the next sync.
+     */
+    public void syncWithRedis() {
+        if (!redisEnabled) {
+            return;
+        }
+        ensureLoaded();
+
+        lock.lock();
+        long urls = activeUrlsDelta.sumThenReset();
+        long clicks = totalClicksDelta.sumThenReset();
+        try {
+            List<Object> totals = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                redis.incrBy(ACTIVE_URLS_KEY, urls);
+                redis.incrBy(TOTAL_CLICKS_KEY, clicks);
+                return null;
+            });
+            activeUrlsBase = (Long) totals.get(0);
+            totalClicksBase = (Long) totals.get(1);
+        } catch (Exception e) {
+            logger.warn("Failed to sync stats with Redis", e);
+            activeUrlsDelta.add(urls);
+            totalClicksDelta.add(clicks);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recomputes the totals from the database and replaces the counted values.
+     * With Redis one node per interval reconciles the shared counters.
+     */
+    public void reconcile() {
+        lock.lock();
+        try {
+            if (redisEnabled && !acquireReconcileLock()) {
+                return;
+            }
+            loadFromDatabase(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // First read before the scheduled reconciliation ran
+    private void ensureLoaded() {
+        if (!loaded) {
+            lock.lock();
+            try {
+                if (!loaded) {
+                    loadFromDatabase(false);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Shared counters are only overwritten by reconciliation; a starting node just seeds missing ones
+    private void loadFromDatabase(boolean overwriteRedis) {
+        long urls = activeUrlsDelta.sumThenReset();
+        long clicks = totalClicksDelta.sumThenReset();
+        try {
+            // Clicks reach the database write-behind; push this node's pending ones first
+            clickCounterService.flush();
+            Long activeUrls = urlRepository.countActiveUrls();
+            Long totalClicks = urlRepository.getTotalClicks();
+            long activeUrlsTotal = activeUrls != null ? activeUrls : 0L;
+            long totalClicksTotal = totalClicks != null ? totalClicks : 0L;
+
+            if (redisEnabled) {
+                storeInRedis(activeUrlsTotal, totalClicksTotal, overwriteRedis);
+            }
+
+            if (loaded) {
+                logger.debug("Reconciled stats: active URLs {} -> {}, clicks {} -> {}",
+                        activeUrlsBase + urls, activeUrlsTotal, totalClicksBase + clicks, totalClicksTotal);
+            }
+            activeUrlsBase = activeUrlsTotal;
+            totalClicksBase = totalClicksTotal;
+            loaded = true;
+        } catch (Exception e) {
+            logger.error("Failed to load stats from the database", e);
+            activeUrlsDelta.add(urls);
+            totalClicksDelta.add(clicks);
+        }
+    }
+
+    private void storeInRedis(long activeUrls, long totalClicks, boolean overwrite) {
+        try {
+            if (overwrite) {
+                redisTemplate.opsForValue().set(ACTIVE_URLS_KEY, Long.toString(activeUrls));
+                redisTemplate.opsForValue().set(TOTAL_CLICKS_KEY, Long.toString(totalClicks));
+            } else {
+                redisTemplate.opsForValue().setIfAbsent(ACTIVE_URLS_KEY, Long.toString(activeUrls));
+                redisTemplate.opsForValue().setIfAbsent(TOTAL_CLICKS_KEY, Long.toString(totalClicks));
+            }
+        } catch (Exception e) {
+            // This node keeps serving its own counts until Redis is reachable again
+            logger.warn("Failed to store stats in Redis", e);
+        }
+    }
+
+    private boolean acquireReconcileLock() {
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK_KEY, nodeId,
+                    Duration.ofSeconds(reconcileIntervalSeconds).minusSeconds(1));
+            return Boolean.TRUE.equals(acquired);
+        } catch (Exception e) {
+            logger.warn("Failed to acquire stats reconcile lock", e);
+            return false;
+        }
+    }
+
+    private static class UserClicks {
+        private final long base;
+        private final LongAdder delta = new LongAdder();
+
+        UserClicks(long base) {
+            this.base = base;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.urlshortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import eu.bitwalker.useragentutils.UserAgent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Parses user agent strings into browser, operating system and device names.
+ * A few hundred distinct strings cover most traffic, so parsed results are
+ * cached by the raw string and the regex-heavy parser only sees new ones.
+ */
+@Service
+public class UserAgentService {
+
+    @Value("${url-shortener.analytics.user-agent-cache.maximum-size}")
+    private long cacheMaximumSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, ParsedUserAgent> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userAgents");
+    }
+
+    public ParsedUserAgent parse(String userAgent) {
+        if (userAgent == null) {
+            return null;
+        }
+        return cache.get(userAgent, UserAgentService::parseUncached);
+    }
+
+    // The names are enum constants, so cached entries share the same String instances
+    private static ParsedUserAgent parseUncached(String userAgent) {
+        UserAgent ua = UserAgent.parseUserAgentString(userAgent);
+        return new ParsedUserAgent(ua.getBrowser().getName(),
+                ua.getOperatingSystem().getName(),
+                ua.getOperatingSystem().getDeviceType().getName());
+    }
+
+    public record ParsedUserAgent(String browser, String operatingSystem, String device) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.urlshortener.shortcode;
+
+import com.example.urlshortener.repository.UrlRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws random codes and checks each one against the database, costing at
+ * least one extra query per created URL.
+ */
+@Component
+@ConditionalOnProperty(name = "url-shortener.short-code.strategy", havingValue = "random")
+public class RandomShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Value("${url-shortener.short-code.length}")
+    private int shortCodeLength;
+
+    @Value("${url-shortener.short-code.characters}")
+    private String allowedCharacters;
+
+    @Override
+    public String nextShortCode() {
+        String shortCode;
+        int attempts = 0;
+
+        do {
+            shortCode = randomShortCode(shortCodeLength);
+            attempts++;
+
+            if (attempts > MAX_ATTEMPTS) {
+                // If we can't find a unique code, increase length
+                shortCode = randomShortCode(shortCodeLength + 1);
+                break;
+            }
+        } while (urlRepository.existsByShortCode(shortCode));
+
+        return shortCode;
+    }
+
+    private String randomShortCode(int length) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(allowedCharacters.charAt(random.nextInt(allowedCharacters.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.urlshortener.shortcode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counter-based short codes. Each node leases a segment of counter values from
+ * the short_code_segments table with a single atomic UPDATE, then hands them
+ * out from memory. Every value is passed through a keyed Feistel permutation of
+ * [0, alphabet^length) before base-62 encoding, so codes are unique without any
+ * existence query but do not reveal creation order.
+ */
+@Component
+@ConditionalOnProperty(name = "url-shortener.short-code.strategy", havingValue = "segment", matchIfMissing = true)
+public class SegmentShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentShortCodeGenerator.class);
+
+    private static final String SEGMENT_NAME = "urls";
+    private static final int ROUNDS = 4;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${url-shortener.short-code.length}")
+    private int shortCodeLength;
+
+    @Value("${url-shortener.short-code.characters}")
+    private String allowedCharacters;
+
+    @Value("${url-shortener.short-code.segment-size}")
+    private int segmentSize;
+
+    @Value("${url-shortener.short-code.permutation-key}")
+    private String permutationKey;
+
+    private TransactionTemplate transactionTemplate;
+
+    private long domainSize;
+    private int halfBits;
+    private long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    // Current lease, [next, limit); guarded by lock, held across the JDBC lease
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long limit;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        domainSize = 1;
+        for (int i = 0; i < shortCodeLength; i++) {
+            domainSize = Math.multiplyExact(domainSize, (long) allowedCharacters.length());
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(domainSize - 1);
+        halfBits = (bits + 1) / 2;
+        halfMask = (1L << halfBits) - 1;
+
+        long seed = permutationKey.hashCode();
+        for (int i = 0; i < ROUNDS; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            roundKeys[i] = mix(seed);
+        }
+
+        try {
+            jdbcTemplate.update("INSERT INTO short_code_segments (name, next_value) VALUES (?, 0)", SEGMENT_NAME);
+        } catch (DuplicateKeyException e) {
+            // Created by an earlier start or another node
+        }
+
+        logger.info("Segment short code generator ready ({} codes of length {}, segment size {})",
+                domainSize, shortCodeLength, segmentSize);
+    }
+
+    @Override
+    public String nextShortCode() {
+        lock.lock();
+        try {
+            if (next >= limit) {
+                leaseSegment();
+            }
+            return encode(permute(next++));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void leaseSegment() {
+        Long end = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("UPDATE short_code_segments SET next_value = next_value + ? WHERE name = ?",
+                    segmentSize, SEGMENT_NAME);
+            // The row stays locked by our UPDATE until commit, so this reads our own increment
+            return jdbcTemplate.queryForObject("SELECT next_value FROM short_code_segments WHERE name = ?",
+                    Long.class, SEGMENT_NAME);
+        });
+
+        // The last segment may run past the end of the code space; its values below the end are still usable
+        if (end == null || end - segmentSize >= domainSize) {
+            throw new IllegalStateException("Short code space exhausted, increase url-shortener.short-code.length");
+        }
+
+        next = end - segmentSize;
+        limit = Math.min(end, domainSize);
+        logger.debug("Leased short code segment [{}, {})", next, limit);
+    }
+
+    // Bijection on [0, domainSize): Feistel network over 2 * halfBits bits, cycle-walking
+    // values that land outside the domain (at most a few extra rounds on average)
+    private long permute(long value) {
+        long result = feistel(value);
+        while (result >= domainSize) {
+            result = feistel(result);
+        }
+        return result;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (long roundKey : roundKeys) {
+            long mixed = left ^ (mix(right ^ roundKey) & halfMask);
+            left = right;
+            right = mixed;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private String encode(long value) {
+        int base = allowedCharacters.length();
+        char[] code = new char[shortCodeLength];
+        for (int i = shortCodeLength - 1; i >= 0; i--) {
+            code[i] = allowedCharacters.charAt((int) (value % base));
+            value /= base;
+        }
+        return new String(code);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.urlshortener.shortcode;
+
+/**
+ * Source of short codes for URLs created without a custom alias. The active
+ * implementation is chosen with {@code url-shortener.short-code.strategy}.
+ */
+public interface ShortCodeGenerator {
+
+    /**
+     * Returns a short code that no other call on any node has returned. A code
+     * may still clash with a custom alias, which the caller detects on insert.
+     */
+    String nextShortCode();
+}
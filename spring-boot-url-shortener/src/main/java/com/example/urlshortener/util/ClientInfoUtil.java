@@ -2,36 +2,8 @@ package com.example.urlshortener.util;
 
 import jakarta.servlet.http.HttpServletRequest;
 
+// The client address is resolved by ClientIpResolver, which knows the trusted proxies
 public class ClientInfoUtil {
-    
-    private static final String[] IP_HEADER_CANDIDATES = {
-        "X-Forwarded-For",
-        "Proxy-Client-IP",
-        "WL-Proxy-Client-IP",
-        "HTTP_X_FORWARDED_FOR",
-        "HTTP_X_FORWARDED",
-        "HTTP_X_CLUSTER_CLIENT_IP",
-        "HTTP_CLIENT_IP",
-        "HTTP_FORWARDED_FOR",
-        "HTTP_FORWARDED",
-        "HTTP_VIA",
-        "REMOTE_ADDR"
-    };
-
-    public static String getClientIpAddress(HttpServletRequest request) {
-        for (String header : IP_HEADER_CANDIDATES) {
-            String ipList = request.getHeader(header);
-            if (ipList != null && !ipList.isEmpty() && !"unknown".equalsIgnoreCase(ipList)) {
-                // Get first IP if there are multiple (comma-separated)
-                String ip = ipList.split(",")[0].trim();
-                if (isValidIpAddress(ip)) {
-                    return ip;
-                }
-            }
-        }
-        
-        return request.getRemoteAddr();
-    }
 
     public static String getUserAgent(HttpServletRequest request) {
         return request.getHeader("User-Agent");
@@ -44,28 +16,4 @@ public class ClientInfoUtil {
     public static String getAcceptLanguage(HttpServletRequest request) {
         return request.getHeader("Accept-Language");
     }
-
-    private static boolean isValidIpAddress(String ip) {
-        if (ip == null || ip.isEmpty()) {
-            return false;
-        }
-        
-        // Basic validation - not comprehensive but good enough for our use case
-        String[] parts = ip.split("\\.");
-        if (parts.length != 4) {
-            return false;
-        }
-        
-        try {
-            for (String part : parts) {
-                int num = Integer.parseInt(part);
-                if (num < 0 || num > 255) {
-                    return false;
-                }
-            }
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-}
\ No newline at end of file
+}
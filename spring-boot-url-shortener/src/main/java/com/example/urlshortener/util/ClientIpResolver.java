@@ -0,0 +1,135 @@
+package com.example.urlshortener.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Resolves the address of the client behind a request. Forwarding headers are
+ * client-controlled, so they are only believed when the direct peer is one of
+ * url-shortener.client-ip.trusted-proxies. Every result is in canonical form
+ * (IPv6 compressed spellings expanded, IPv4 leading zeros dropped) so rate limit
+ * and analytics keys agree however the address was written.
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientIpResolver.class);
+
+    // Resolved once per request; the rate limit filter runs first and controllers reuse it
+    public static final String CLIENT_IP_ATTRIBUTE = ClientIpResolver.class.getName() + ".clientIp";
+
+    // Consulted only when the direct peer is a trusted proxy; X-Forwarded-For is handled first
+    private static final String[] IP_HEADER_CANDIDATES = {
+        "Proxy-Client-IP",
+        "WL-Proxy-Client-IP",
+        "HTTP_X_FORWARDED_FOR",
+        "HTTP_X_FORWARDED",
+        "HTTP_X_CLUSTER_CLIENT_IP",
+        "HTTP_CLIENT_IP",
+        "HTTP_FORWARDED_FOR",
+        "HTTP_FORWARDED",
+        "HTTP_VIA",
+        "REMOTE_ADDR"
+    };
+
+    @Value("${url-shortener.client-ip.trusted-proxies}")
+    private List<String> trustedProxyRanges;
+
+    private IpRange[] trustedProxies;
+
+    @PostConstruct
+    public void init() {
+        trustedProxies = trustedProxyRanges.stream().map(IpRange::parse).toArray(IpRange[]::new);
+        logger.info("Trusting forwarding headers from {}", trustedProxyRanges);
+    }
+
+    public String getClientIpAddress(HttpServletRequest request) {
+        Object resolved = request.getAttribute(CLIENT_IP_ATTRIBUTE);
+        if (resolved instanceof String clientIp) {
+            return clientIp;
+        }
+
+        String clientIp = resolveClientIpAddress(request);
+        request.setAttribute(CLIENT_IP_ATTRIBUTE, clientIp);
+        return clientIp;
+    }
+
+    private String resolveClientIpAddress(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        IpAddress peer = IpAddress.parse(remoteAddr);
+        if (peer == null) {
+            // Not an IP literal (e.g. a Unix socket peer); nothing to normalise
+            return remoteAddr;
+        }
+        if (!isTrustedProxy(peer)) {
+            return peer.toString();
+        }
+
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor != null) {
+            IpAddress hop = lastUntrustedHop(forwardedFor);
+            if (hop != null) {
+                return hop.toString();
+            }
+        }
+
+        for (String header : IP_HEADER_CANDIDATES) {
+            String ipList = request.getHeader(header);
+            if (ipList != null && !ipList.isEmpty()) {
+                // First entry if there are multiple (comma-separated)
+                int end = ipList.indexOf(',');
+                IpAddress address = trimmedIp(ipList, 0, end >= 0 ? end : ipList.length());
+                if (address != null) {
+                    return address.toString();
+                }
+            }
+        }
+
+        return peer.toString();
+    }
+
+    // Proxies append to the right, so walk back past our own proxies to the first address they did not add
+    private IpAddress lastUntrustedHop(String forwardedFor) {
+        IpAddress hop = null;
+        int end = forwardedFor.length();
+        while (end > 0) {
+            int comma = forwardedFor.lastIndexOf(',', end - 1);
+            IpAddress address = trimmedIp(forwardedFor, comma + 1, end);
+            if (address == null) {
+                // Anything left of a malformed entry cannot be trusted
+                return hop;
+            }
+            hop = address;
+            if (!isTrustedProxy(address)) {
+                return hop;
+            }
+            end = comma;
+        }
+        return hop;
+    }
+
+    private static IpAddress trimmedIp(String value, int start, int end) {
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return IpAddress.parse(value, start, end);
+    }
+
+    private boolean isTrustedProxy(IpAddress address) {
+        for (IpRange range : trustedProxies) {
+            if (range.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.urlshortener.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * IPv4 or IPv6 address held as a 128-bit number. IPv4 addresses are stored in
+ * their IPv4-mapped form (::ffff:a.b.c.d) so both families share one
+ * representation. The parsers make a single pass over the text and allocate
+ * nothing but the result.
+ */
+public record IpAddress(long high, long low) {
+
+    private static final long IPV4_MAPPED_PREFIX = 0xFFFF_0000_0000L;
+
+    public static IpAddress ofIpv4(int address) {
+        return new IpAddress(0, IPV4_MAPPED_PREFIX | (address & 0xFFFF_FFFFL));
+    }
+
+    public static IpAddress parse(CharSequence text) {
+        return text != null ? parse(text, 0, text.length()) : null;
+    }
+
+    // Returns null if text[start, end) is not an IPv4 or IPv6 literal
+    public static IpAddress parse(CharSequence text, int start, int end) {
+        if (start >= end) {
+            return null;
+        }
+        long ipv4 = parseIpv4(text, start, end);
+        if (ipv4 >= 0) {
+            return ofIpv4((int) ipv4);
+        }
+        return parseIpv6(text, start, end);
+    }
+
+    // Returns the unsigned address, or -1 if text[start, end) is not a dotted-quad IPv4 literal
+    public static long parseIpv4(CharSequence text, int start, int end) {
+        long address = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                address = (address << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (address << 8) | octet;
+    }
+
+    private static IpAddress parseIpv6(CharSequence text, int start, int end) {
+        // Zone ids (fe80::1%eth0) do not take part in comparisons
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '%') {
+                end = i;
+                break;
+            }
+        }
+
+        // Groups before "::" are kept apart and moved to the top once the count is known
+        long headHigh = 0, headLow = 0;
+        long high = 0, low = 0;
+        int groups = 0;
+        int headGroups = -1;
+
+        int i = start;
+        if (end - start >= 2 && text.charAt(i) == ':') {
+            if (text.charAt(i + 1) != ':') {
+                return null;
+            }
+            headGroups = 0;
+            i += 2;
+        }
+
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            int digits = 0;
+            while (i < end) {
+                int digit = hexDigit(text.charAt(i));
+                if (digit < 0) {
+                    break;
+                }
+                if (++digits > 4) {
+                    return null;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+
+            if (i < end && text.charAt(i) == '.') {
+                // Embedded IPv4 (::ffff:1.2.3.4) fills the last two groups
+                long ipv4 = parseIpv4(text, groupStart, end);
+                if (ipv4 < 0 || groups > 6) {
+                    return null;
+                }
+                high = (high << 32) | (low >>> 32);
+                low = (low << 32) | ipv4;
+                groups += 2;
+                break;
+            }
+
+            if (digits == 0 || ++groups > 8) {
+                return null;
+            }
+            high = (high << 16) | (low >>> 48);
+            low = (low << 16) | value;
+
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i++) != ':' || i == end) {
+                return null;
+            }
+            if (text.charAt(i) == ':') {
+                if (headGroups >= 0) {
+                    return null;
+                }
+                headGroups = groups;
+                headHigh = high;
+                headLow = low;
+                high = 0;
+                low = 0;
+                i++;
+            }
+        }
+
+        if (headGroups < 0) {
+            return groups == 8 ? new IpAddress(high, low) : null;
+        }
+        if (groups > 7) {
+            return null;
+        }
+        for (int shifted = headGroups; shifted < 8; shifted++) {
+            headHigh = (headHigh << 16) | (headLow >>> 48);
+            headLow <<= 16;
+        }
+        return new IpAddress(headHigh | high, headLow | low);
+    }
+
+    // ASCII only: Character.digit would also accept other scripts' digits and fullwidth letters
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    // Keeps the leading prefixLength bits; IPv4 prefixes count IPv4 bits only
+    public IpAddress mask(int prefixLength) {
+        int bits = isIpv4() ? prefixLength + 96 : prefixLength;
+        long highMask = bits >= 64 ? -1L : bits <= 0 ? 0 : -1L << (64 - bits);
+        long lowMask = bits <= 64 ? 0 : bits >= 128 ? -1L : -1L << (128 - bits);
+        return new IpAddress(high & highMask, low & lowMask);
+    }
+
+    // Built from the address bytes, so no name service lookup can happen
+    public InetAddress toInetAddress() {
+        byte[] bytes;
+        if (isIpv4()) {
+            bytes = new byte[4];
+            putBytes(bytes, 0, low, 4);
+        } else {
+            bytes = new byte[16];
+            putBytes(bytes, 0, high, 8);
+            putBytes(bytes, 8, low, 8);
+        }
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException e) {
+            // Only thrown for an illegal array length
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void putBytes(byte[] bytes, int offset, long value, int count) {
+        for (int i = 0; i < count; i++) {
+            bytes[offset + i] = (byte) (value >>> (8 * (count - 1 - i)));
+        }
+    }
+
+    public boolean isIpv4() {
+        return high == 0 && (low >>> 32) == 0xFFFF;
+    }
+
+    public int ipv4() {
+        return (int) low;
+    }
+
+    public boolean isLoopback() {
+        return isIpv4() ? (ipv4() >>> 24) == 127 : high == 0 && low == 1;
+    }
+
+    // RFC 1918 for IPv4, unique local fc00::/7 (RFC 4193) for IPv6
+    public boolean isPrivate() {
+        if (isIpv4()) {
+            int address = ipv4();
+            return (address >>> 24) == 10
+                    || (address >>> 20) == 0xAC1
+                    || (address >>> 16) == 0xC0A8;
+        }
+        return (high >>> 57) == (0xFC >>> 1);
+    }
+
+    // 169.254.0.0/16 and fe80::/10
+    public boolean isLinkLocal() {
+        if (isIpv4()) {
+            return (ipv4() >>> 16) == 0xA9FE;
+        }
+        return (high >>> 54) == (0xFE80 >>> 6);
+    }
+
+    // Addresses that cannot identify a client on the public internet
+    public boolean isLocal() {
+        boolean unspecified = isIpv4() ? ipv4() == 0 : high == 0 && low == 0;
+        return unspecified || isLoopback() || isPrivate() || isLinkLocal();
+    }
+
+    @Override
+    public String toString() {
+        if (isIpv4()) {
+            int address = ipv4();
+            return (address >>> 24) + "." + ((address >>> 16) & 0xFF) + "." + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+        }
+        StringBuilder sb = new StringBuilder(39);
+        for (int group = 0; group < 8; group++) {
+            long word = group < 4 ? high : low;
+            int shift = 48 - (group % 4) * 16;
+            if (group > 0) {
+                sb.append(':');
+            }
+            sb.append(Integer.toHexString((int) (word >>> shift) & 0xFFFF));
+        }
+        return sb.toString();
+    }
+}
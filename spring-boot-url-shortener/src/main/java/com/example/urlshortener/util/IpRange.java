@@ -0,0 +1,39 @@
+package com.example.urlshortener.util;
+
+/**
+ * CIDR block such as 10.0.0.0/8 or fc00::/7. IPv4 prefixes are widened to
+ * match the IPv4-mapped form used by {@link IpAddress}.
+ */
+public record IpRange(long high, long low, long highMask, long lowMask) {
+
+    public static IpRange parse(String cidr) {
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        IpAddress address = IpAddress.parse(value, 0, slash >= 0 ? slash : value.length());
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid IP range: " + cidr);
+        }
+
+        int maxPrefix = address.isIpv4() ? 32 : 128;
+        int prefix;
+        try {
+            prefix = slash >= 0 ? Integer.parseInt(value.substring(slash + 1)) : maxPrefix;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid IP range: " + cidr);
+        }
+        if (prefix < 0 || prefix > maxPrefix) {
+            throw new IllegalArgumentException("Invalid IP range: " + cidr);
+        }
+        if (address.isIpv4()) {
+            prefix += 96;
+        }
+
+        long highMask = prefix >= 64 ? -1L : prefix == 0 ? 0 : -1L << (64 - prefix);
+        long lowMask = prefix <= 64 ? 0 : prefix == 128 ? -1L : -1L << (128 - prefix);
+        return new IpRange(address.high() & highMask, address.low() & lowMask, highMask, lowMask);
+    }
+
+    public boolean contains(IpAddress address) {
+        return (address.high() & highMask) == high && (address.low() & lowMask) == low;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.urlshortener.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursor: the sort position of the last row served
+ * and its id as tie-breaker. Time positions are kept as nanoseconds since the
+ * epoch so they round-trip exactly. Clients must treat the encoded form as an
+ * opaque token.
+ */
+public record PageCursor(long position, long id) {
+
+    private static final String VERSION = "v1";
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    public static PageCursor of(LocalDateTime time, long id) {
+        long position = time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + time.getNano();
+        return new PageCursor(position, id);
+    }
+
+    public LocalDateTime time() {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(position, NANOS_PER_SECOND),
+                (int) Math.floorMod(position, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    public String encode() {
+        String raw = VERSION + ":" + position + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return the decoded cursor, or null for a blank one (first page)
+     * @throws IllegalArgumentException if the cursor was not issued by {@link #encode()}
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new PageCursor(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // Also covers malformed Base64 and NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.urlshortener.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy hitters summary (Metwally et al.) over long keys. At most
+ * {@code capacity} keys are counted; a new key takes over the smallest counter
+ * and inherits its count as the error bound. Any key seen more often than
+ * total / capacity times is guaranteed to be present, and no count is ever
+ * underestimated. Not thread-safe.
+ */
+public class SpaceSaving {
+
+    public record Entry(long key, long count, long error) {
+    }
+
+    private static final class Counter {
+        final long key;
+        long count;
+        final long error;
+
+        Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private static final Comparator<Counter> BY_COUNT =
+            Comparator.<Counter>comparingLong(c -> c.count).thenComparingLong(c -> c.key);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters;
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(long key, long increment) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += increment;
+            byCount.add(counter);
+            return;
+        }
+
+        long error = 0;
+        if (counters.size() >= capacity) {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.key);
+            error = smallest.count;
+        }
+        counter = new Counter(key, error + increment, error);
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    // Highest counts first
+    public List<Entry> top(int limit) {
+        List<Entry> result = new ArrayList<>(Math.min(limit, counters.size()));
+        Iterator<Counter> iterator = byCount.descendingIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            Counter counter = iterator.next();
+            result.add(new Entry(counter.key, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.urlshortener.benchmark;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal in-process benchmark loop for the opt-in *Benchmark classes, which
+ * run only with -Dbenchmark=true, e.g.
+ * {@code mvn test -Dtest=ClientIpResolverBenchmark -Dbenchmark=true}.
+ * Each iteration calls the operation for a fixed time after warm-up and
+ * reports nanoseconds per call. Operations return a value derived from their
+ * result, which is folded into a sink so the JIT cannot drop the work.
+ */
+public final class Microbenchmark {
+
+    public static final String ENABLED_PROPERTY = "benchmark";
+
+    private static final int WARM_UP_ITERATIONS = 5;
+    private static final int ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+    private static final int BATCH = 1_000;
+
+    private static volatile long sink;
+
+    private Microbenchmark() {
+    }
+
+    public record Result(String name, double[] nanosPerOp) {
+
+        public double mean() {
+            return Arrays.stream(nanosPerOp).average().orElse(Double.NaN);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %10.1f ns/op  (%.1f .. %.1f)", name, mean(),
+                    Arrays.stream(nanosPerOp).min().orElse(Double.NaN),
+                    Arrays.stream(nanosPerOp).max().orElse(Double.NaN));
+        }
+    }
+
+    public static Result run(String name, LongSupplier operation) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            iteration(operation);
+        }
+        double[] nanosPerOp = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            nanosPerOp[i] = iteration(operation);
+        }
+        Result result = new Result(name, nanosPerOp);
+        System.out.println(result);
+        return result;
+    }
+
+    private static double iteration(LongSupplier operation) {
+        long calls = 0;
+        long blackhole = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                blackhole += operation.getAsLong();
+            }
+            calls += BATCH;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        sink += blackhole;
+        return (double) elapsed / calls;
+    }
+}
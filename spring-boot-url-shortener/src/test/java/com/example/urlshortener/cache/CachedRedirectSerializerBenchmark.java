@@ -0,0 +1,62 @@
+package com.example.urlshortener.cache;
+
+import com.example.urlshortener.benchmark.Microbenchmark;
+import com.example.urlshortener.entity.Url;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Size and decode time of a "urls" cache entry: the JSON Url entity as cached
+ * before CachedRedirect, against the binary format. The figures in the README
+ * come from this class.
+ */
+@EnabledIfSystemProperty(named = Microbenchmark.ENABLED_PROPERTY, matches = "true")
+class CachedRedirectSerializerBenchmark {
+
+    // 82 characters
+    private static final String ORIGINAL_URL =
+            "https://www.example.com/blog/2024/01/how-we-scaled-our-url-shortener?utm_source=x1";
+
+    private static Url typicalUrl() {
+        Url url = new Url("aB3xK9p", ORIGINAL_URL, "user-1042");
+        url.setId(184_467L);
+        url.setTitle("How we scaled our URL shortener");
+        url.setDescription("Notes on caching, click counting and analytics partitioning");
+        url.setUserAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+                + "(KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
+        url.setCreatedFromIp("203.0.113.42");
+        url.setExpiresAt(LocalDateTime.of(2031, 1, 31, 12, 0));
+        url.setLastAccessedAt(LocalDateTime.of(2030, 6, 1, 8, 30, 15));
+        url.setClickCount(1_523L);
+        return url;
+    }
+
+    @Test
+    void compareWithTheJsonEntity() {
+        Url url = typicalUrl();
+        assertThat(url.getOriginalUrl()).hasSize(82);
+
+        // The serializer the "urls" cache used before CachedRedirect; see RedisConfig#cacheValueSerializer
+        RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer().configure(mapper -> mapper
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+        CachedRedirectSerializer binary = new CachedRedirectSerializer(new SimpleMeterRegistry());
+
+        byte[] jsonEntry = json.serialize(url);
+        byte[] binaryEntry = binary.serialize(CachedRedirect.from(url));
+        System.out.printf("JSON Url entry: %d bytes, binary CachedRedirect entry: %d bytes%n",
+                jsonEntry.length, binaryEntry.length);
+
+        Microbenchmark.run("JSON Url decode", () -> ((Url) json.deserialize(jsonEntry)).getId());
+        Microbenchmark.run("binary CachedRedirect decode", () -> ((CachedRedirect) binary.deserialize(binaryEntry)).id());
+    }
+}
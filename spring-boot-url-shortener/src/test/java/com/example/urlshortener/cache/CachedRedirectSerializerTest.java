@@ -0,0 +1,129 @@
+package com.example.urlshortener.cache;
+
+import com.example.urlshortener.entity.Url;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachedRedirectSerializerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachedRedirectSerializer serializer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        serializer = new CachedRedirectSerializer(meterRegistry);
+    }
+
+    private double unreadable() {
+        return meterRegistry.get("urlshortener.cache.redirect.unreadable").counter().count();
+    }
+
+    @Test
+    void redirectWithAllOptionalFieldsRoundTrips() {
+        CachedRedirect redirect = new CachedRedirect(1234567L, "abc1234", "https://example.com/päth?q=1",
+                LocalDateTime.of(2031, 5, 17, 13, 45, 12, 123_456_789), true, true, -42L, "user-7");
+
+        byte[] bytes = serializer.serialize(redirect);
+
+        assertThat(bytes[0]).isEqualTo(CachedRedirectSerializer.FORMAT_VERSION);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(redirect);
+    }
+
+    @Test
+    void redirectWithoutOptionalFieldsRoundTrips() {
+        CachedRedirect redirect = new CachedRedirect(1L, "x", "https://example.com", null, false, false, 0L, null);
+
+        CachedRedirect read = (CachedRedirect) serializer.deserialize(serializer.serialize(redirect));
+
+        assertThat(read).isEqualTo(redirect);
+        assertThat(read.expiresAt()).isNull();
+        assertThat(read.createdBy()).isNull();
+        assertThat(read.isPasswordProtected()).isFalse();
+    }
+
+    @Test
+    void expiryBeforeTheEpochRoundTrips() {
+        CachedRedirect redirect = new CachedRedirect(5L, "old", "https://example.com",
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1), true, false, 0L, null);
+
+        assertThat(serializer.deserialize(serializer.serialize(redirect))).isEqualTo(redirect);
+    }
+
+    @Test
+    void redirectBuiltFromUrlRoundTrips() {
+        Url url = new Url("abc1234", "https://example.com/page", "user-7");
+        url.setId(99L);
+        url.setExpiresAt(LocalDateTime.of(2030, 1, 1, 0, 0));
+        url.setPassword("$2a$10$encodedpasswordhash");
+
+        CachedRedirect redirect = CachedRedirect.from(url);
+        CachedRedirect read = (CachedRedirect) serializer.deserialize(serializer.serialize(redirect));
+
+        assertThat(read).isEqualTo(redirect);
+        assertThat(read.isPasswordProtected()).isTrue();
+    }
+
+    @Test
+    void cachedNullIsReadAsNullValue() {
+        byte[] cachedNull = RedisSerializer.java().serialize(NullValue.INSTANCE);
+
+        assertThat(serializer.deserialize(cachedNull)).isSameAs(NullValue.INSTANCE);
+        assertThat(unreadable()).isZero();
+    }
+
+    @Test
+    void unknownVersionIsReadAsMiss() {
+        byte[] bytes = serializer.serialize(new CachedRedirect(1L, "x", "https://example.com", null, true, true, 0L, null));
+        bytes[0] = CachedRedirectSerializer.FORMAT_VERSION + 1;
+
+        assertThat(serializer.deserialize(bytes)).isNull();
+        assertThat(unreadable()).isEqualTo(1);
+    }
+
+    @Test
+    void legacyJsonEntryIsReadAsMiss() {
+        Url url = new Url("abc1234", "https://example.com/page", "user-7");
+        url.setId(99L);
+        byte[] json = new GenericJackson2JsonRedisSerializer()
+                .configure(mapper -> mapper.registerModule(new JavaTimeModule()))
+                .serialize(url);
+
+        assertThat(serializer.deserialize(json)).isNull();
+        assertThat(unreadable()).isEqualTo(1);
+    }
+
+    @Test
+    void emptyEntryIsNull() {
+        assertThat(serializer.deserialize(null)).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+        assertThat(serializer.serialize(null)).isNull();
+    }
+
+    @Test
+    void truncatedEntryIsRejected() {
+        byte[] bytes = serializer.serialize(new CachedRedirect(1L, "abc1234", "https://example.com/page",
+                LocalDateTime.of(2030, 1, 1, 0, 0), true, true, 7L, "user-7"));
+
+        assertThatThrownBy(() -> serializer.deserialize(Arrays.copyOf(bytes, bytes.length - 3)))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void otherValuesAreRejected() {
+        assertThatThrownBy(() -> serializer.serialize(new Url("abc1234", "https://example.com")))
+                .isInstanceOf(SerializationException.class);
+    }
+}
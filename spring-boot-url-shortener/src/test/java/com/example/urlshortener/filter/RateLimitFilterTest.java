@@ -0,0 +1,162 @@
+package com.example.urlshortener.filter;
+
+import com.example.urlshortener.config.RateLimitPolicyProperties;
+import com.example.urlshortener.service.RateLimitingService;
+import com.example.urlshortener.util.ClientIpResolver;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RateLimitFilterTest {
+
+    private static final String CLIENT_IP = "203.0.113.5";
+
+    // Bucket keys a token was requested for, and those that are out of tokens
+    private final List<String> consumedKeys = new ArrayList<>();
+    private final Set<String> exhaustedKeys = new HashSet<>();
+
+    private RateLimitFilter rateLimitFilter;
+    private UserRateLimitFilter userRateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitingService rateLimitingService = mock(RateLimitingService.class);
+        when(rateLimitingService.isEnabled()).thenReturn(true);
+        when(rateLimitingService.tryConsume(anyString(), any())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            consumedKeys.add(key);
+            return exhaustedKeys.contains(key)
+                    ? ConsumptionProbe.rejected(0, TimeUnit.SECONDS.toNanos(30), TimeUnit.SECONDS.toNanos(60))
+                    : ConsumptionProbe.consumed(10, 0);
+        });
+
+        RateLimitPolicyProperties properties = new RateLimitPolicyProperties();
+        properties.setPolicies(List.of(
+                policy("url_access", "GET", "/{shortCode:[a-zA-Z0-9_-]+}", List.of("/actuator", "/h2-console", "/error"), "ip"),
+                policy("url_creation", "POST", "/api/urls/shorten", List.of(), "user")));
+
+        ClientIpResolver clientIpResolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(clientIpResolver, "trustedProxyRanges", List.of("127.0.0.0/8"));
+        clientIpResolver.init();
+
+        rateLimitFilter = new RateLimitFilter();
+        ReflectionTestUtils.setField(rateLimitFilter, "rateLimitingService", rateLimitingService);
+        ReflectionTestUtils.setField(rateLimitFilter, "properties", properties);
+        ReflectionTestUtils.setField(rateLimitFilter, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(rateLimitFilter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(rateLimitFilter, "clientIpResolver", clientIpResolver);
+        rateLimitFilter.init();
+
+        userRateLimitFilter = new UserRateLimitFilter();
+        ReflectionTestUtils.setField(userRateLimitFilter, "rateLimitFilter", rateLimitFilter);
+        ReflectionTestUtils.setField(userRateLimitFilter, "clientIpResolver", clientIpResolver);
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static RateLimitPolicyProperties.Policy policy(String name, String method, String path,
+                                                           List<String> excludePaths, String key) {
+        RateLimitPolicyProperties.Policy policy = new RateLimitPolicyProperties.Policy();
+        policy.setName(name);
+        policy.setMethods(List.of(method));
+        policy.setPaths(List.of(path));
+        policy.setExcludePaths(excludePaths);
+        policy.setKey(key);
+        return policy;
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(CLIENT_IP);
+        return request;
+    }
+
+    // Both stages, as the servlet container runs them around the security chain
+    private MockHttpServletResponse dispatch(MockHttpServletRequest request, MockFilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, (req, res) -> userRateLimitFilter.doFilter(req, res, chain));
+        return response;
+    }
+
+    @Test
+    void shortCodeRedirectsAreLimitedPerClientIp() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        dispatch(request("GET", "/aB3_x-9"), chain);
+
+        assertThat(consumedKeys).containsExactly("url_access:" + CLIENT_IP);
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    @Test
+    void pathsThatAreNotShortCodesAreNotLimited() throws Exception {
+        for (String path : List.of("/favicon.ico", "/robots.txt", "/actuator", "/h2-console", "/error",
+                "/h2-console/login.do", "/api/urls/popular", "/")) {
+            MockFilterChain chain = new MockFilterChain();
+            dispatch(request("GET", path), chain);
+            assertThat(chain.getRequest()).as(path).isNotNull();
+        }
+
+        assertThat(consumedKeys).isEmpty();
+    }
+
+    @Test
+    void urlCreationIsChargedToTheAuthenticatedUser() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated("alice", null, AuthorityUtils.NO_AUTHORITIES));
+
+        MockFilterChain chain = new MockFilterChain();
+        dispatch(request("POST", "/api/urls/shorten"), chain);
+
+        assertThat(consumedKeys).containsExactly("url_creation:user:alice");
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    @Test
+    void anonymousUrlCreationIsChargedToTheClientIp() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+                "key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+
+        dispatch(request("POST", "/api/urls/shorten"), new MockFilterChain());
+
+        assertThat(consumedKeys).containsExactly("url_creation:ip:" + CLIENT_IP);
+    }
+
+    @Test
+    void exhaustedBucketAnswers429WithRetryAfter() throws Exception {
+        exhaustedKeys.add("url_access:" + CLIENT_IP);
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = dispatch(request("GET", "/abc1234"), chain);
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("30");
+        assertThat(response.getContentAsString()).contains("Rate limit exceeded");
+        assertThat(chain.getRequest()).isNull();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.urlshortener.repository;
+
+import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.repository.UrlAnalyticsPartitions.Partition;
+import com.example.urlshortener.repository.UrlAnalyticsPartitions.Period;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlAnalyticsPartitionsTest {
+
+    private static final int RETENTION_DAYS = 10;
+
+    private JdbcTemplate jdbcTemplate;
+    private UrlAnalyticsPartitions partitions;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:partitions-test;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        partitions = newNode(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    // One application node's view of the shared database
+    private static UrlAnalyticsPartitions newNode(DriverManagerDataSource dataSource) {
+        UrlAnalyticsPartitions node = new UrlAnalyticsPartitions();
+        ReflectionTestUtils.setField(node, "jdbcTemplate", new JdbcTemplate(dataSource));
+        ReflectionTestUtils.setField(node, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(node, "period", Period.DAY);
+        ReflectionTestUtils.setField(node, "createAhead", 2);
+        ReflectionTestUtils.setField(node, "retentionDays", RETENTION_DAYS);
+        node.init();
+        return node;
+    }
+
+    private void createDayTable(LocalDate day) {
+        jdbcTemplate.execute("CREATE TABLE url_analytics_d" + day.format(DateTimeFormatter.BASIC_ISO_DATE) +
+                " (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, url_id BIGINT, accessed_at TIMESTAMP)");
+    }
+
+    private List<String> tables() {
+        return jdbcTemplate.queryForList("SELECT LOWER(table_name) FROM information_schema.tables " +
+                "WHERE table_schema = CURRENT_SCHEMA AND LOWER(table_name) LIKE 'url_analytics_%' ORDER BY 1", String.class);
+    }
+
+    @Test
+    void startupCreatesTheCurrentAndUpcomingPartitions() {
+        LocalDate today = LocalDate.now();
+
+        assertThat(tables()).containsExactly(
+                "url_analytics_d" + today.format(DateTimeFormatter.BASIC_ISO_DATE),
+                "url_analytics_d" + today.plusDays(1).format(DateTimeFormatter.BASIC_ISO_DATE),
+                "url_analytics_d" + today.plusDays(2).format(DateTimeFormatter.BASIC_ISO_DATE));
+    }
+
+    @Test
+    void writersNeverCreatePartitions() {
+        LocalDateTime farAhead = LocalDateTime.now().plusDays(30);
+
+        assertThat(partitions.partitionFor(LocalDateTime.now())).isNotNull();
+        assertThat(partitions.partitionFor(farAhead)).isNull();
+        assertThat(tables()).hasSize(3);
+    }
+
+    @Test
+    void expiredPartitionIsHiddenAtOnceButDroppedADayLater() {
+        LocalDate today = LocalDate.now();
+        // One left the retention window less than a day ago, the other days ago
+        LocalDate justExpired = today.minusDays(RETENTION_DAYS + 1);
+        LocalDate longExpired = today.minusDays(RETENTION_DAYS + 3);
+        LocalDate retained = today.minusDays(RETENTION_DAYS - 1);
+        createDayTable(justExpired);
+        createDayTable(longExpired);
+        createDayTable(retained);
+        partitions.refresh();
+
+        assertThat(partitions.all()).extracting(Partition::table)
+                .doesNotContain(tableName(justExpired), tableName(longExpired))
+                .contains(tableName(retained));
+        assertThat(partitions.partitionFor(justExpired.atTime(12, 0))).isNull();
+
+        assertThat(partitions.dropExpired()).isEqualTo(1);
+        assertThat(tables()).doesNotContain(tableName(longExpired)).contains(tableName(justExpired), tableName(retained));
+    }
+
+    @Test
+    void nodeWithAStaleCatalogNeverReadsADroppedTable() {
+        DriverManagerDataSource dataSource = (DriverManagerDataSource) jdbcTemplate.getDataSource();
+        LocalDate expired = LocalDate.now().minusDays(RETENTION_DAYS + 3);
+        createDayTable(expired);
+        UrlAnalyticsPartitions otherNode = newNode(dataSource);
+
+        partitions.refresh();
+        partitions.dropExpired();
+
+        // The other node has not refreshed, but the table is outside retention for it too
+        assertThat(otherNode.all()).extracting(Partition::table).doesNotContain(tableName(expired));
+
+        UrlAnalyticsRepository repository = new UrlAnalyticsRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", new JdbcTemplate(dataSource));
+        ReflectionTestUtils.setField(repository, "partitions", otherNode);
+        repository.deleteByUrlId(1L);
+        assertThat(repository.countByUrlId(1L)).isZero();
+    }
+
+    @Test
+    void clicksWithoutAPartitionAreSkippedNotCreated() {
+        UrlAnalyticsRepository repository = new UrlAnalyticsRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "partitions", partitions);
+
+        UrlAnalytics now = new UrlAnalytics(1L, "203.0.113.5");
+        UrlAnalytics farAhead = new UrlAnalytics(1L, "203.0.113.5");
+        farAhead.setAccessedAt(LocalDateTime.now().plusDays(30));
+        assertThat(repository.saveAll(List.of(now, farAhead))).containsExactly(now);
+
+        assertThat(repository.countByUrlId(1L)).isEqualTo(1);
+        assertThat(tables()).hasSize(3);
+    }
+
+    @Test
+    void partitionIdsAreOnlyUniqueWithinAPartition() {
+        UrlAnalyticsRepository repository = new UrlAnalyticsRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "partitions", partitions);
+
+        UrlAnalytics today = new UrlAnalytics(1L, "203.0.113.5");
+        UrlAnalytics tomorrow = new UrlAnalytics(1L, "203.0.113.5");
+        tomorrow.setAccessedAt(LocalDateTime.now().plusDays(1));
+        repository.saveAll(List.of(today, tomorrow));
+
+        assertThat(repository.findRecent(1L, 10)).extracting(UrlAnalytics::getId).containsExactly(1L, 1L);
+    }
+
+    private static String tableName(LocalDate day) {
+        return "url_analytics_d" + day.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.repository.UrlAnalyticsPartitions;
+import com.example.urlshortener.repository.UrlAnalyticsRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalyticsExportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private AnalyticsExportService exportService;
+
+    private final LocalDateTime clickedAt = LocalDate.now().atTime(0, 0, 1);
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:export-test;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("CREATE TABLE dimension_values (id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "kind VARCHAR(20) NOT NULL, dimension_value VARCHAR(500) NOT NULL, " +
+                "CONSTRAINT uk_dimension_value UNIQUE (kind, dimension_value))");
+
+        UrlAnalyticsPartitions partitions = new UrlAnalyticsPartitions();
+        ReflectionTestUtils.setField(partitions, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(partitions, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(partitions, "period", UrlAnalyticsPartitions.Period.DAY);
+        ReflectionTestUtils.setField(partitions, "createAhead", 1);
+        ReflectionTestUtils.setField(partitions, "retentionDays", 30);
+        partitions.init();
+
+        DimensionDictionaryService dictionary = new DimensionDictionaryService();
+        ReflectionTestUtils.setField(dictionary, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(dictionary, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dictionary, "cacheSize", 100L);
+        dictionary.init();
+
+        UrlAnalytics analytics = new UrlAnalytics(1L, "203.0.113.5");
+        analytics.setAccessedAt(clickedAt);
+        analytics.setUserAgent("Mozilla/5.0 (X11; Linux x86_64) Firefox/128.0");
+        analytics.setReferer("https://example.com/a,b");
+        analytics.setCity("Melbourne");
+        analytics.setBrowser("Firefox");
+        analytics.setOperatingSystem("Linux");
+        analytics.setDevice("Computer");
+        analytics.setCountry("Australia");
+        analytics.setLanguage("en-AU");
+        analytics.setLatitude(-37.8);
+        analytics.setLongitude(144.9);
+        dictionary.encode(analytics);
+        UrlAnalytics otherUrl = new UrlAnalytics(2L, "198.51.100.1");
+        otherUrl.setAccessedAt(clickedAt);
+
+        UrlAnalyticsRepository repository = new UrlAnalyticsRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "partitions", partitions);
+        repository.saveAll(List.of(analytics, otherUrl));
+
+        exportService = new AnalyticsExportService();
+        ReflectionTestUtils.setField(exportService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(exportService, "partitions", partitions);
+        ReflectionTestUtils.setField(exportService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(exportService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(exportService, "dimensionDictionary", dictionary);
+        exportService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private String export(String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.export(List.of(1L), clickedAt.toLocalDate().atStartOfDay(),
+                clickedAt.toLocalDate().plusDays(1).atStartOfDay(), format, out);
+        assertThat(rows).isEqualTo(1);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void csvHasPlainAndDecodedDimensions() throws Exception {
+        assertThat(export("csv")).isEqualTo(
+                "url_id,accessed_at,ip_address,user_agent,referer,country,city," +
+                "browser,operating_system,device,language,latitude,longitude\r\n" +
+                "1," + clickedAt + ",203.0.113.5,Mozilla/5.0 (X11; Linux x86_64) Firefox/128.0," +
+                "\"https://example.com/a,b\",Australia,Melbourne,Firefox,Linux,Computer,en-AU,-37.8,144.9\r\n");
+    }
+
+    @Test
+    void ndjsonHasPlainAndDecodedDimensions() throws Exception {
+        JsonNode row = new ObjectMapper().readTree(export("ndjson"));
+
+        assertThat(row.get("url_id").asLong()).isEqualTo(1);
+        assertThat(row.get("user_agent").asText()).isEqualTo("Mozilla/5.0 (X11; Linux x86_64) Firefox/128.0");
+        assertThat(row.get("referer").asText()).isEqualTo("https://example.com/a,b");
+        assertThat(row.get("city").asText()).isEqualTo("Melbourne");
+        assertThat(row.get("country").asText()).isEqualTo("Australia");
+        assertThat(row.get("browser").asText()).isEqualTo("Firefox");
+        assertThat(row.get("language").asText()).isEqualTo("en-AU");
+        assertThat(row.get("latitude").asDouble()).isEqualTo(-37.8);
+    }
+}
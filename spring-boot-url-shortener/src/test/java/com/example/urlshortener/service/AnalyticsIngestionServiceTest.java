@@ -0,0 +1,223 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.repository.UrlAnalyticsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalyticsIngestionServiceTest {
+
+    private UrlAnalyticsRepository analyticsRepository;
+    private AnalyticsRollupService rollupService;
+    private PlatformTransactionManager transactionManager;
+    private AnalyticsIngestionService service;
+
+    // Copies of the batches passed to saveAll; the writer reuses its list
+    private final List<List<UrlAnalytics>> savedBatches = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        analyticsRepository = mock(UrlAnalyticsRepository.class);
+        doAnswer(invocation -> {
+            List<UrlAnalytics> saved = new ArrayList<>(invocation.<List<UrlAnalytics>>getArgument(0));
+            savedBatches.add(saved);
+            return saved;
+        }).when(analyticsRepository).saveAll(anyList());
+        rollupService = mock(AnalyticsRollupService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    private void startService(int batchSize, long lingerMs) {
+        service = new AnalyticsIngestionService();
+        ReflectionTestUtils.setField(service, "analyticsRepository", analyticsRepository);
+        ReflectionTestUtils.setField(service, "geoLocationService", mock(GeoLocationService.class));
+        ReflectionTestUtils.setField(service, "userAgentService", mock(UserAgentService.class));
+        ReflectionTestUtils.setField(service, "dimensionDictionary", mock(DimensionDictionaryService.class));
+        ReflectionTestUtils.setField(service, "rollupService", rollupService);
+        ReflectionTestUtils.setField(service, "uniqueVisitorService", mock(UniqueVisitorService.class));
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "batchSize", batchSize);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(service, "workerCount", 1);
+        ReflectionTestUtils.setField(service, "dropPolicy", "drop-newest");
+        ReflectionTestUtils.setField(service, "lingerMs", lingerMs);
+        service.start();
+    }
+
+    private void click(long urlId) {
+        assertThat(service.submit(new AnalyticsIngestionService.ClickEvent(urlId, "127.0.0.1", null, null, null))).isTrue();
+    }
+
+    private int savedRows() {
+        return savedBatches.stream().mapToInt(List::size).sum();
+    }
+
+    private void awaitSavedRows(int rows, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (savedRows() < rows && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void clicksArrivingWithinTheLingerShareOneBatch() throws Exception {
+        startService(100, 1000);
+
+        for (int i = 0; i < 3; i++) {
+            click(i);
+            Thread.sleep(50);
+        }
+        awaitSavedRows(3, 3000);
+
+        assertThat(savedBatches).hasSize(1);
+        assertThat(savedBatches.get(0)).extracting(UrlAnalytics::getUrlId).containsExactly(0L, 1L, 2L);
+    }
+
+    @Test
+    void fullBatchIsWrittenWithoutWaitingForTheLinger() throws Exception {
+        startService(5, 60_000);
+
+        for (int i = 0; i < 5; i++) {
+            click(i);
+        }
+        awaitSavedRows(5, 3000);
+
+        assertThat(savedRows()).isEqualTo(5);
+        assertThat(savedBatches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(5));
+    }
+
+    @Test
+    void stopWritesPendingClicks() throws Exception {
+        startService(100, 60_000);
+
+        for (int i = 0; i < 7; i++) {
+            click(i);
+        }
+        service.stop();
+        service = null;
+
+        assertThat(savedRows()).isEqualTo(7);
+    }
+
+    @Test
+    void rawRowsAndRollupsCommitInOneTransaction() throws Exception {
+        startService(3, 60_000);
+
+        for (int i = 0; i < 3; i++) {
+            click(i);
+        }
+        awaitSavedRows(3, 3000);
+        service.stop();
+        service = null;
+
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(rollupService).apply(anyList());
+    }
+
+    @Test
+    void onlyWrittenRowsAreRolledUp() throws Exception {
+        // The repository skips clicks without a partition
+        doAnswer(invocation -> {
+            List<UrlAnalytics> written = invocation.<List<UrlAnalytics>>getArgument(0).stream()
+                    .filter(analytics -> analytics.getUrlId() != 1L)
+                    .toList();
+            savedBatches.add(written);
+            return written;
+        }).when(analyticsRepository).saveAll(anyList());
+        startService(3, 60_000);
+
+        for (int i = 0; i < 3; i++) {
+            click(i);
+        }
+        awaitSavedRows(2, 3000);
+        service.stop();
+        service = null;
+
+        ArgumentCaptor<List<UrlAnalytics>> rolledUp = ArgumentCaptor.captor();
+        verify(rollupService).apply(rolledUp.capture());
+        assertThat(rolledUp.getValue()).extracting(UrlAnalytics::getUrlId).containsExactly(0L, 2L);
+    }
+
+    @Test
+    void failedRollupRollsBackTheRawRows() throws Exception {
+        doThrow(new DataAccessResourceFailureException("down")).when(rollupService).apply(anyList());
+        startService(3, 60_000);
+
+        for (int i = 0; i < 3; i++) {
+            click(i);
+        }
+        awaitSavedRows(3, 3000);
+        service.stop();
+        service = null;
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void concurrentBucketInsertRetriesTheWholeBatch() throws Exception {
+        doThrow(new DataIntegrityViolationException("duplicate bucket"))
+                .doNothing()
+                .when(rollupService).apply(anyList());
+        startService(3, 60_000);
+
+        for (int i = 0; i < 3; i++) {
+            click(i);
+        }
+        awaitSavedRows(6, 3000);
+        service.stop();
+        service = null;
+
+        // The rolled back raw rows are inserted again together with the rollups
+        assertThat(savedBatches).hasSize(2);
+        assertThat(savedBatches.get(1)).hasSize(3);
+        verify(rollupService, times(2)).apply(anyList());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void languageIsReducedToTheFirstIsoTag() {
+        assertThat(AnalyticsIngestionService.primaryLanguage("en-US,en;q=0.9,de;q=0.8")).isEqualTo("en-US");
+        assertThat(AnalyticsIngestionService.primaryLanguage("DE;q=0.7")).isEqualTo("de");
+        assertThat(AnalyticsIngestionService.primaryLanguage("zh-Hans-CN")).isEqualTo("zh");
+        assertThat(AnalyticsIngestionService.primaryLanguage("pt_br")).isEqualTo("pt-BR");
+        assertThat(AnalyticsIngestionService.primaryLanguage("*")).isNull();
+        assertThat(AnalyticsIngestionService.primaryLanguage("x-random-4711")).isNull();
+        assertThat(AnalyticsIngestionService.primaryLanguage(null)).isNull();
+    }
+}
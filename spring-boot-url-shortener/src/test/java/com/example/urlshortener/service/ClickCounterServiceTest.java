@@ -0,0 +1,168 @@
+package com.example.urlshortener.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class ClickCounterServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbcTemplate;
+
+    // Clicks written to the database per URL id
+    private final Map<Long, AtomicLong> flushed = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        recordBatchUpdates();
+    }
+
+    private void recordBatchUpdates() {
+        doAnswer(invocation -> {
+            Collection<?> batch = invocation.getArgument(1);
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            for (Object clicks : batch) {
+                PreparedStatement ps = mock(PreparedStatement.class);
+                long[] values = new long[4];
+                doAnswer(set -> {
+                    values[set.<Integer>getArgument(0)] = set.<Long>getArgument(1);
+                    return null;
+                }).when(ps).setLong(anyInt(), anyLong());
+                setter.setValues(ps, clicks);
+                flushed.computeIfAbsent(values[3], id -> new AtomicLong()).addAndGet(values[1]);
+            }
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+    }
+
+    private ClickCounterService newService() {
+        ClickCounterService service = new ClickCounterService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "spillFile", tempDir.resolve("clicks.spill").toString());
+        service.init();
+        return service;
+    }
+
+    private long totalFlushed() {
+        return flushed.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    @Test
+    void flushWritesAccumulatedDeltasOncePerUrl() {
+        ClickCounterService service = newService();
+        for (int i = 0; i < 5; i++) {
+            service.increment(1L);
+        }
+        service.increment(2L);
+
+        assertThat(service.flush()).isEqualTo(2);
+        assertThat(flushed.get(1L).get()).isEqualTo(5);
+        assertThat(flushed.get(2L).get()).isEqualTo(1);
+
+        // Nothing new: the idle counters are dropped without a write
+        assertThat(service.flush()).isZero();
+        assertThat(totalFlushed()).isEqualTo(6);
+    }
+
+    @Test
+    void failedFlushKeepsDeltasForTheNextOne() {
+        ClickCounterService service = newService();
+        service.increment(1L);
+        service.increment(1L);
+
+        doThrow(new DataAccessResourceFailureException("down"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        assertThat(service.flush()).isZero();
+
+        recordBatchUpdates();
+        assertThat(service.flush()).isEqualTo(1);
+        assertThat(flushed.get(1L).get()).isEqualTo(2);
+    }
+
+    @Test
+    void unflushedClicksAreSpilledOnShutdownAndReplayedOnStart() {
+        ClickCounterService service = newService();
+        service.increment(7L);
+        service.increment(7L);
+        service.increment(8L);
+
+        doThrow(new DataAccessResourceFailureException("down"))
+                .when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        service.shutdown();
+        assertThat(Files.exists(tempDir.resolve("clicks.spill"))).isTrue();
+
+        recordBatchUpdates();
+        ClickCounterService restarted = newService();
+        assertThat(Files.exists(tempDir.resolve("clicks.spill"))).isFalse();
+        restarted.flush();
+        assertThat(flushed.get(7L).get()).isEqualTo(2);
+        assertThat(flushed.get(8L).get()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentIncrementsAreNeitherLostNorCountedTwiceWhileFlushing() throws Exception {
+        ClickCounterService service = newService();
+        int threads = 8;
+        int clicksPerThread = 50_000;
+        // Many ids clicked sparsely, so counters keep going idle and being removed under load
+        int urlIds = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicBoolean running = new AtomicBoolean(true);
+        executor.submit(() -> {
+            while (running.get()) {
+                service.flush();
+            }
+        });
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < clicksPerThread; i++) {
+                    service.increment((long) random.nextInt(urlIds));
+                }
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+        running.set(false);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        service.flush();
+
+        assertThat(totalFlushed()).isEqualTo((long) threads * clicksPerThread);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.entity.DimensionValue.Kind;
+import com.example.urlshortener.entity.UrlAnalytics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DimensionDictionaryServiceTest {
+
+    // Values looked up in the dictionary, as "KIND=value"
+    private final List<String> lookedUp = new ArrayList<>();
+
+    private DimensionDictionaryService service;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(eq("SELECT id FROM dimension_values WHERE kind = ? AND dimension_value = ?"),
+                any(ResultSetExtractor.class), any(Object[].class))).thenAnswer(invocation -> {
+                    Object[] args = (Object[]) invocation.getRawArguments()[2];
+                    lookedUp.add(args[0] + "=" + args[1]);
+                    return lookedUp.size();
+                });
+
+        service = new DimensionDictionaryService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "cacheSize", 100L);
+        service.init();
+    }
+
+    @Test
+    void onlyLowCardinalityDimensionsGoThroughTheDictionary() {
+        UrlAnalytics analytics = new UrlAnalytics(1L, "203.0.113.5");
+        analytics.setUserAgent("Mozilla/5.0 (X11; Linux x86_64) Firefox/128.0");
+        analytics.setReferer("https://example.com/some/page?utm_source=abc123");
+        analytics.setCity("Melbourne");
+        analytics.setBrowser("Firefox");
+        analytics.setOperatingSystem("Linux");
+        analytics.setDevice("Computer");
+        analytics.setCountry("Australia");
+        analytics.setLanguage("en-AU");
+
+        service.encode(analytics);
+
+        assertThat(lookedUp).containsExactly("BROWSER=Firefox", "OPERATING_SYSTEM=Linux", "DEVICE=Computer",
+                "COUNTRY=Australia", "LANGUAGE=en-AU");
+        assertThat(analytics.getBrowserId()).isEqualTo(1);
+        assertThat(analytics.getLanguageId()).isEqualTo(5);
+        // Stored as they are
+        assertThat(analytics.getUserAgent()).startsWith("Mozilla/5.0");
+        assertThat(analytics.getReferer()).startsWith("https://example.com/");
+        assertThat(analytics.getCity()).isEqualTo("Melbourne");
+    }
+
+    @Test
+    void repeatedValuesAreServedFromTheCache() {
+        service.encode(Kind.BROWSER, "Chrome");
+        service.encode(Kind.BROWSER, "Chrome");
+
+        assertThat(lookedUp).containsExactly("BROWSER=Chrome");
+        assertThat(service.decode(1)).isEqualTo("Chrome");
+    }
+}
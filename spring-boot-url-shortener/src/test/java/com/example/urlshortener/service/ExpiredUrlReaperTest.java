@@ -0,0 +1,137 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.repository.UrlRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExpiredUrlReaperTest {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime DAY_ONE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private UrlRepository urlRepository;
+    private ExpiredUrlReaper reaper;
+
+    // The afterExpiresAt bound of each chunk query
+    private final List<LocalDateTime> queriedFrom = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        urlRepository = mock(UrlRepository.class);
+        when(urlRepository.deactivateByIdIn(anyCollection())).thenAnswer(invocation ->
+                invocation.<List<Long>>getArgument(0).size());
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        reaper = new ExpiredUrlReaper();
+        ReflectionTestUtils.setField(reaper, "urlRepository", urlRepository);
+        ReflectionTestUtils.setField(reaper, "cacheManager", new ConcurrentMapCacheManager("urls"));
+        ReflectionTestUtils.setField(reaper, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(reaper, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(reaper, "urlStatsService", mock(UrlStatsService.class));
+        ReflectionTestUtils.setField(reaper, "chunkSize", 2);
+        ReflectionTestUtils.setField(reaper, "maxRowsPerSecond", 1_000_000);
+        reaper.init();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Object[] row(long id, LocalDateTime expiresAt) {
+        return new Object[] {id, "code" + id, expiresAt};
+    }
+
+    @Test
+    void nextRunResumesAfterTheLastReapedUrl() {
+        when(urlRepository.findExpiredAfter(any(), any(), anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            queriedFrom.add(invocation.getArgument(1));
+            return queriedFrom.size() == 1 ? List.<Object[]>of(row(7, DAY_ONE)) : List.<Object[]>of();
+        });
+
+        assertThat(reaper.reap()).isEqualTo(1);
+        reaper.reap();
+
+        assertThat(queriedFrom).containsExactly(EPOCH, DAY_ONE);
+    }
+
+    @Test
+    void resetDuringAChunkIsNotOverwrittenByItsCursor() {
+        when(urlRepository.findExpiredAfter(any(), any(), anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            queriedFrom.add(invocation.getArgument(1));
+            if (queriedFrom.size() == 1) {
+                return List.<Object[]>of(row(1, DAY_ONE));
+            }
+            if (queriedFrom.size() == 2) {
+                // A URL behind the chunk being read gets its expiry while the chunk is in flight
+                reaper.noteExpiresAt(DAY_ONE.minusDays(30));
+                return List.<Object[]>of(row(2, DAY_ONE.plusHours(1)), row(3, DAY_ONE.plusHours(2)));
+            }
+            return List.<Object[]>of();
+        });
+
+        reaper.reap();
+        reaper.reap();
+
+        // The chunk after the reset starts over instead of continuing after row 3
+        assertThat(queriedFrom).containsExactly(EPOCH, DAY_ONE, EPOCH);
+    }
+
+    @Test
+    void resetInsideATransactionWaitsForTheCommit() {
+        when(urlRepository.findExpiredAfter(any(), any(), anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            queriedFrom.add(invocation.getArgument(1));
+            return queriedFrom.size() == 1 ? List.<Object[]>of(row(7, DAY_ONE)) : List.<Object[]>of();
+        });
+        reaper.reap();
+
+        TransactionSynchronizationManager.initSynchronization();
+        reaper.noteExpiresAt(DAY_ONE.minusDays(1));
+        reaper.reap();
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+        reaper.reap();
+
+        assertThat(queriedFrom).containsExactly(EPOCH, DAY_ONE, EPOCH);
+    }
+
+    @Test
+    void expiryAheadOfTheCursorDoesNotRestartTheScan() {
+        when(urlRepository.findExpiredAfter(any(), any(), anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            queriedFrom.add(invocation.getArgument(1));
+            return queriedFrom.size() == 1 ? List.<Object[]>of(row(7, DAY_ONE)) : List.<Object[]>of();
+        });
+        reaper.reap();
+
+        reaper.noteExpiresAt(DAY_ONE.plusDays(1));
+        reaper.reap();
+
+        assertThat(queriedFrom).containsExactly(EPOCH, DAY_ONE);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.urlshortener.service;
+
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.model.CityResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GeoLocationServiceTest {
+
+    private DatabaseReader reader;
+    private GeoLocationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new GeoLocationService();
+        ReflectionTestUtils.setField(service, "geoipEnabled", true);
+        ReflectionTestUtils.setField(service, "databasePath", "does-not-exist.mmdb");
+        ReflectionTestUtils.setField(service, "fileMode", "memory-mapped");
+        ReflectionTestUtils.setField(service, "cacheMaximumSize", 1000L);
+        ReflectionTestUtils.setField(service, "cacheKey", "address");
+        ReflectionTestUtils.setField(service, "cacheExpireAfterWrite", 3600L);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        service.init();
+
+        reader = mock(DatabaseReader.class);
+        ReflectionTestUtils.setField(service, "databaseReader", reader);
+    }
+
+    @Test
+    void addressMissingFromTheDatabaseIsCached() throws Exception {
+        when(reader.tryCity(any(InetAddress.class))).thenReturn(Optional.empty());
+
+        assertThat(service.getLocationInfo("203.0.113.5")).isNull();
+        assertThat(service.getLocationInfo("203.0.113.5")).isNull();
+
+        verify(reader, times(1)).tryCity(any(InetAddress.class));
+    }
+
+    @Test
+    void failedReadIsNotCachedAsNotFound() throws Exception {
+        CityResponse response = mock(CityResponse.class, RETURNS_DEEP_STUBS);
+        when(response.getCountry().getName()).thenReturn("Australia");
+        when(reader.tryCity(any(InetAddress.class)))
+                .thenThrow(new IOException("Database has been closed."))
+                .thenReturn(Optional.of(response));
+
+        assertThat(service.getLocationInfo("203.0.113.5")).isNull();
+        assertThat(service.getLocationInfo("203.0.113.5").getCountry()).isEqualTo("Australia");
+        // Now cached
+        assertThat(service.getLocationInfo("203.0.113.5").getCountry()).isEqualTo("Australia");
+
+        verify(reader, times(2)).tryCity(any(InetAddress.class));
+    }
+
+    @Test
+    void replacedReaderIsClosedOnlyAtTheNextCheck() throws Exception {
+        DatabaseReader retired = mock(DatabaseReader.class);
+        ReflectionTestUtils.setField(service, "retiredReader", retired);
+
+        service.reloadIfChanged();
+
+        verify(retired).close();
+        verify(reader, never()).close();
+        assertThat(ReflectionTestUtils.getField(service, "retiredReader")).isNull();
+    }
+
+    @Test
+    void closeReleasesCurrentAndRetiredReaders() throws Exception {
+        DatabaseReader retired = mock(DatabaseReader.class);
+        ReflectionTestUtils.setField(service, "retiredReader", retired);
+
+        service.close();
+
+        verify(retired).close();
+        verify(reader).close();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.repository.UrlAnalyticsPartitions;
+import com.example.urlshortener.repository.UrlAnalyticsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LegacyAnalyticsMigrationTest {
+
+    // url_analytics as the JPA entity of earlier releases created it
+    private static final String BASELINE_TABLE_SQL =
+            "CREATE TABLE url_analytics (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+            "url_id BIGINT NOT NULL, accessed_at TIMESTAMP NOT NULL, ip_address VARCHAR(45), " +
+            "user_agent VARCHAR(500), browser VARCHAR(100), operating_system VARCHAR(100), device VARCHAR(100), " +
+            "country VARCHAR(100), city VARCHAR(100), referer VARCHAR(500), language VARCHAR(100), " +
+            "latitude FLOAT(53), longitude FLOAT(53))";
+
+    private JdbcTemplate jdbcTemplate;
+    private UrlAnalyticsPartitions partitions;
+    private DimensionDictionaryService dictionary;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy-migration-test;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE dimension_values (id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "kind VARCHAR(20) NOT NULL, dimension_value VARCHAR(500) NOT NULL, " +
+                "CONSTRAINT uk_dimension_value UNIQUE (kind, dimension_value))");
+
+        partitions = new UrlAnalyticsPartitions();
+        ReflectionTestUtils.setField(partitions, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(partitions, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(partitions, "period", UrlAnalyticsPartitions.Period.DAY);
+        ReflectionTestUtils.setField(partitions, "createAhead", 1);
+        ReflectionTestUtils.setField(partitions, "retentionDays", 30);
+        partitions.init();
+
+        dictionary = new DimensionDictionaryService();
+        ReflectionTestUtils.setField(dictionary, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(dictionary, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dictionary, "partitions", partitions);
+        ReflectionTestUtils.setField(dictionary, "cacheSize", 100L);
+        ReflectionTestUtils.setField(dictionary, "migrateLegacyTable", true);
+        ReflectionTestUtils.setField(dictionary, "migrationChunkSize", 2);
+        dictionary.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private void insertLegacyRow(long urlId, String accessedAt, String browser, String country) {
+        jdbcTemplate.update("INSERT INTO url_analytics (url_id, accessed_at, ip_address, user_agent, browser, " +
+                "operating_system, device, country, city, referer, language) " +
+                "VALUES (?, CAST(? AS TIMESTAMP), '203.0.113.5', 'Mozilla/5.0', ?, 'Linux', 'Computer', ?, " +
+                "'Melbourne', 'https://example.com/', 'en-AU')", urlId, accessedAt, browser, country);
+    }
+
+    @Test
+    void idColumnsAreAddedAndBackfilledFromTheStringColumns() {
+        jdbcTemplate.execute(BASELINE_TABLE_SQL);
+        insertLegacyRow(1, "2026-10-01 10:00:00", "Firefox", "Australia");
+        insertLegacyRow(1, "2026-10-01 11:00:00", "Chrome", "Australia");
+        insertLegacyRow(2, "2026-10-02 09:00:00", "Firefox", null);
+
+        dictionary.migrateLegacyColumns();
+
+        Map<String, Object> first = jdbcTemplate.queryForMap(
+                "SELECT browser_id, country_id, language_id FROM url_analytics WHERE id = 1");
+        assertThat(dictionary.decode((Integer) first.get("BROWSER_ID"))).isEqualTo("Firefox");
+        assertThat(dictionary.decode((Integer) first.get("COUNTRY_ID"))).isEqualTo("Australia");
+        assertThat(dictionary.decode((Integer) first.get("LANGUAGE_ID"))).isEqualTo("en-AU");
+        assertThat(jdbcTemplate.queryForObject("SELECT country_id FROM url_analytics WHERE id = 3", Integer.class))
+                .isNull();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM url_analytics WHERE browser_id IS NULL", Integer.class)).isZero();
+    }
+
+    @Test
+    void baselineRowsEndUpEncodedInPartitions() {
+        jdbcTemplate.execute(BASELINE_TABLE_SQL);
+        insertLegacyRow(1, "2026-10-01 10:00:00", "Firefox", "Australia");
+        insertLegacyRow(1, "2026-10-02 11:00:00", "Chrome", "Australia");
+        insertLegacyRow(2, "2026-10-02 09:00:00", "Firefox", null);
+
+        dictionary.onApplicationReady();
+
+        assertThat(partitions.hasLegacyTable()).isFalse();
+        UrlAnalyticsRepository repository = new UrlAnalyticsRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(repository, "partitions", partitions);
+        List<UrlAnalytics> moved = repository.findRecent(1L, 10).stream().map(dictionary::decode).toList();
+        assertThat(moved).extracting(UrlAnalytics::getAccessedAt).containsExactly(
+                LocalDateTime.of(2026, 10, 2, 11, 0), LocalDateTime.of(2026, 10, 1, 10, 0));
+        assertThat(moved).extracting(UrlAnalytics::getBrowser).containsExactly("Chrome", "Firefox");
+        assertThat(moved).extracting(UrlAnalytics::getCountry).containsOnly("Australia");
+        assertThat(moved).extracting(UrlAnalytics::getUserAgent).containsOnly("Mozilla/5.0");
+        assertThat(moved).extracting(UrlAnalytics::getCity).containsOnly("Melbourne");
+        assertThat(repository.countByUrlId(2L)).isEqualTo(1);
+    }
+
+    @Test
+    void missingLegacyTableIsNothingToMigrate() {
+        dictionary.onApplicationReady();
+
+        assertThat(partitions.hasLegacyTable()).isFalse();
+    }
+
+    @Test
+    void otherFailuresAreThrown() {
+        // A legacy table without the string columns cannot be backfilled
+        jdbcTemplate.execute("CREATE TABLE url_analytics (id BIGINT PRIMARY KEY, accessed_at TIMESTAMP)");
+
+        assertThatThrownBy(() -> dictionary.onApplicationReady()).isInstanceOf(RuntimeException.class);
+        // Not moved or dropped without its ids
+        assertThat(partitions.hasLegacyTable()).isTrue();
+    }
+}
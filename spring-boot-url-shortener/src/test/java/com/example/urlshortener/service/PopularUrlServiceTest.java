@@ -0,0 +1,115 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.repository.UrlRepository;
+import com.example.urlshortener.service.PopularUrlService.Window;
+import com.example.urlshortener.util.SpaceSaving;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularUrlServiceTest {
+
+    private static final int URL_IDS = 500;
+
+    private UrlRepository urlRepository;
+
+    @BeforeEach
+    void setUp() {
+        urlRepository = mock(UrlRepository.class);
+    }
+
+    private PopularUrlService newNode() {
+        PopularUrlService service = new PopularUrlService();
+        ReflectionTestUtils.setField(service, "urlRepository", urlRepository);
+        // Room for every id, so counts are exact
+        ReflectionTestUtils.setField(service, "capacity", URL_IDS);
+        ReflectionTestUtils.setField(service, "topSize", URL_IDS);
+        service.init();
+        return service;
+    }
+
+    private static long total(List<SpaceSaving.Entry> entries) {
+        return entries.stream().mapToLong(SpaceSaving.Entry::count).sum();
+    }
+
+    @Test
+    void recentClicksAreRankedAfterRefresh() {
+        PopularUrlService service = newNode();
+        service.record(1L);
+        service.record(2L);
+        service.record(2L);
+
+        assertThat(service.getTop(Window.HOUR)).isEmpty();
+        service.refresh();
+
+        assertThat(service.getTop(Window.HOUR)).containsExactly(
+                new SpaceSaving.Entry(2, 2, 0), new SpaceSaving.Entry(1, 1, 0));
+        assertThat(service.getTop(Window.DAY)).isEqualTo(service.getTop(Window.HOUR));
+    }
+
+    @Test
+    void allTimeRankingIsTheStoredClickCountsOnEveryNode() {
+        when(urlRepository.findMostClickedActive(any(Pageable.class))).thenReturn(List.of(
+                new Object[] {7L, 900L}, new Object[] {3L, 40L}));
+        PopularUrlService node = newNode();
+        PopularUrlService otherNode = newNode();
+
+        assertThat(node.getTop(Window.ALL)).isNull();
+        node.rebuildAllTime();
+        otherNode.rebuildAllTime();
+        // Local clicks do not skew one node's all-time ranking
+        node.record(3L);
+        node.refresh();
+
+        List<SpaceSaving.Entry> expected = List.of(new SpaceSaving.Entry(7, 900, 0), new SpaceSaving.Entry(3, 40, 0));
+        assertThat(node.getTop(Window.ALL)).isEqualTo(expected);
+        assertThat(otherNode.getTop(Window.ALL)).isEqualTo(expected);
+    }
+
+    @Test
+    void concurrentClicksAreNeitherLostNorCountedTwiceWhileRefreshing() throws Exception {
+        PopularUrlService service = newNode();
+        int threads = 8;
+        int clicksPerThread = 50_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicBoolean running = new AtomicBoolean(true);
+        executor.submit(() -> {
+            while (running.get()) {
+                service.refresh();
+            }
+        });
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < clicksPerThread; i++) {
+                    service.record((long) random.nextInt(URL_IDS));
+                }
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+        running.set(false);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        service.refresh();
+
+        assertThat(total(service.getTop(Window.HOUR))).isEqualTo((long) threads * clicksPerThread);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.urlshortener.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.doubleThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShortCodeFilterServiceTest {
+
+    private static final String RECENT_KEY = "url-shortener:short-codes:recent";
+
+    private JdbcTemplate jdbcTemplate;
+    private ZSetOperations<String, String> recentCodes;
+    private ShortCodeFilterService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(2L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (String code : List.of("known1", "known2")) {
+                ResultSet resultSet = mock(ResultSet.class);
+                when(resultSet.getString(1)).thenReturn(code);
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        recentCodes = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(recentCodes);
+        // Not in the recent set unless a test says otherwise (Mockito would answer 0.0)
+        when(recentCodes.score(anyString(), anyString())).thenReturn(null);
+
+        service = new ShortCodeFilterService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(service, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "filterEnabled", true);
+        ReflectionTestUtils.setField(service, "expectedInsertions", 1000L);
+        ReflectionTestUtils.setField(service, "falsePositiveProbability", 0.001);
+        ReflectionTestUtils.setField(service, "topic", "url-shortener:short-codes");
+        ReflectionTestUtils.setField(service, "recentKey", RECENT_KEY);
+        ReflectionTestUtils.setField(service, "rebuildIntervalSeconds", 21600L);
+        service.init();
+    }
+
+    @Test
+    void everyCodeIsPossiblyPresentUntilTheFirstBuild() {
+        assertThat(service.mightContain("anything")).isTrue();
+        verify(recentCodes, never()).score(anyString(), anyString());
+    }
+
+    @Test
+    void codesInTheDatabaseAreFoundLocally() {
+        service.rebuild();
+
+        assertThat(service.mightContain("known1")).isTrue();
+        assertThat(service.mightContain("known2")).isTrue();
+        verify(recentCodes, never()).score(anyString(), anyString());
+    }
+
+    @Test
+    void localMissIsRejectedOnlyIfTheRecentSetDoesNotHaveIt() {
+        service.rebuild();
+
+        assertThat(service.mightContainLocally("unknown")).isFalse();
+        assertThat(service.mightContain("unknown")).isFalse();
+        verify(recentCodes).score(RECENT_KEY, "unknown");
+    }
+
+    @Test
+    void codeWhoseAnnouncementWasMissedIsFoundInTheRecentSet() {
+        service.rebuild();
+        when(recentCodes.score(RECENT_KEY, "elsewhere")).thenReturn(1.0);
+
+        assertThat(service.mightContain("elsewhere")).isTrue();
+        // Now known locally, so no second round trip
+        assertThat(service.mightContain("elsewhere")).isTrue();
+        verify(recentCodes, times(1)).score(RECENT_KEY, "elsewhere");
+    }
+
+    @Test
+    void unavailableRedisDoesNotTurnAMissInto404() {
+        service.rebuild();
+        when(recentCodes.score(anyString(), anyString())).thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThat(service.mightContain("unknown")).isTrue();
+    }
+
+    @Test
+    void filterOlderThanTheRecentSetDoesNotRejectCodes() {
+        service.rebuild();
+        ReflectionTestUtils.setField(service, "builtAt", System.currentTimeMillis() - 2 * 21600 * 1000L - 1);
+
+        assertThat(service.mightContain("unknown")).isTrue();
+        verify(recentCodes, never()).score(anyString(), anyString());
+    }
+
+    @Test
+    void newCodesAreRecordedAndFailedRecordsRetried() {
+        service.rebuild();
+        when(recentCodes.add(eq(RECENT_KEY), anyString(), anyDouble()))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenReturn(true);
+
+        service.add("fresh");
+        assertThat(service.mightContainLocally("fresh")).isTrue();
+
+        service.registerPending();
+        service.registerPending();
+        verify(recentCodes, times(2)).add(eq(RECENT_KEY), eq("fresh"), anyDouble());
+    }
+
+    @Test
+    void rebuildTrimsCodesOlderThanTwoIntervals() {
+        long before = System.currentTimeMillis();
+        service.rebuild();
+
+        verify(recentCodes).removeRangeByScore(eq(RECENT_KEY), eq(0.0),
+                doubleThat(max -> max >= before - 2 * 21600 * 1000L
+                        && max <= System.currentTimeMillis() - 2 * 21600 * 1000L));
+    }
+}
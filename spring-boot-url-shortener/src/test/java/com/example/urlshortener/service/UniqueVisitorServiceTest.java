@@ -0,0 +1,107 @@
+package com.example.urlshortener.service;
+
+import com.example.urlshortener.entity.UrlAnalytics;
+import com.example.urlshortener.repository.UrlAnalyticsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.HyperLogLogOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UniqueVisitorServiceTest {
+
+    private StringRedisTemplate redisTemplate;
+    private HyperLogLogOperations<String, String> hyperLogLog;
+    private UrlAnalyticsRepository analyticsRepository;
+    private UniqueVisitorService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        hyperLogLog = mock(HyperLogLogOperations.class);
+        when(redisTemplate.opsForHyperLogLog()).thenReturn(hyperLogLog);
+        analyticsRepository = mock(UrlAnalyticsRepository.class);
+
+        service = new UniqueVisitorService();
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(service, "analyticsRepository", analyticsRepository);
+        ReflectionTestUtils.setField(service, "mode", "approximate");
+        ReflectionTestUtils.setField(service, "retentionDays", 90);
+    }
+
+    @Test
+    void rangeCountReadsOneHashTaggedKeyPerDay() {
+        List<String> counted = new ArrayList<>();
+        when(hyperLogLog.size(any(String[].class))).thenAnswer(invocation -> {
+            for (Object key : invocation.getRawArguments()) {
+                if (key instanceof String[] keys) {
+                    counted.addAll(List.of(keys));
+                } else {
+                    counted.add((String) key);
+                }
+            }
+            return 42L;
+        });
+
+        UniqueVisitorService.UniqueVisitors visitors =
+                service.getUniqueVisitors(7L, LocalDate.of(2024, 2, 28), LocalDate.of(2024, 3, 1));
+
+        assertThat(visitors.getCount()).isEqualTo(42);
+        assertThat(visitors.isEstimated()).isTrue();
+        // Same {7} hash tag, so a cluster routes the multi-key PFCOUNT to a single slot
+        assertThat(counted).containsExactly(
+                "url-shortener:uv:{7}:20240228", "url-shortener:uv:{7}:20240229", "url-shortener:uv:{7}:20240301");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordAddsVisitorsToTheTaggedRegisterOfTheirDay() {
+        StringRedisConnection connection = mock(StringRedisConnection.class);
+        doAnswer(invocation -> {
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return List.of();
+        }).when(redisTemplate).executePipelined(any(RedisCallback.class));
+
+        UrlAnalytics first = new UrlAnalytics(7L, "203.0.113.1");
+        first.setAccessedAt(LocalDateTime.of(2024, 3, 1, 23, 59));
+        UrlAnalytics second = new UrlAnalytics(7L, "203.0.113.2");
+        second.setAccessedAt(LocalDateTime.of(2024, 3, 2, 0, 1));
+        service.record(List.of(first, second));
+
+        verify(connection).pfAdd("url-shortener:uv:{7}:20240301", "203.0.113.1");
+        verify(connection).pfAdd("url-shortener:uv:{7}:20240302", "203.0.113.2");
+        verify(connection).expire(eq("url-shortener:uv:{7}:20240301"), anyLong());
+    }
+
+    @Test
+    void redisFailureFallsBackToAnExactCount() {
+        when(hyperLogLog.size(any(String[].class))).thenThrow(new RedisConnectionFailureException("down"));
+        when(analyticsRepository.getUniqueVisitorsBetween(any(), any(), any())).thenReturn(5L);
+
+        UniqueVisitorService.UniqueVisitors visitors =
+                service.getUniqueVisitors(7L, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 1));
+
+        assertThat(visitors.getCount()).isEqualTo(5);
+        assertThat(visitors.isEstimated()).isFalse();
+        verify(analyticsRepository).getUniqueVisitorsBetween(7L,
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 2, 0, 0));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.urlshortener.shortcode;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SegmentShortCodeGeneratorTest {
+
+    private static final String DIGITS = "0123456789";
+
+    // next_value of the shared short_code_segments row
+    private final AtomicLong segmentCounter = new AtomicLong();
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(startsWith("UPDATE short_code_segments"), any(Object[].class))).thenAnswer(invocation -> {
+            Object[] args = (Object[]) invocation.getRawArguments()[1];
+            segmentCounter.addAndGet((Integer) args[0]);
+            return 1;
+        });
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class)))
+                .thenAnswer(invocation -> segmentCounter.get());
+    }
+
+    private SegmentShortCodeGenerator newGenerator(int length, String characters, String key) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        SegmentShortCodeGenerator generator = new SegmentShortCodeGenerator();
+        ReflectionTestUtils.setField(generator, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(generator, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(generator, "shortCodeLength", length);
+        ReflectionTestUtils.setField(generator, "allowedCharacters", characters);
+        ReflectionTestUtils.setField(generator, "segmentSize", 64);
+        ReflectionTestUtils.setField(generator, "permutationKey", key);
+        generator.init();
+        return generator;
+    }
+
+    @Test
+    void everyCodeOfTheSpaceIsIssuedExactlyOnceAcrossNodes() {
+        // 1000 codes: not a power of two, so the permutation has to cycle-walk
+        SegmentShortCodeGenerator first = newGenerator(3, DIGITS, "key");
+        SegmentShortCodeGenerator second = newGenerator(3, DIGITS, "key");
+
+        List<String> codes = new ArrayList<>(issue(first, 300));
+        // Each node then uses up its remaining leases, the last one ending inside its final segment
+        codes.addAll(issueAll(second));
+        codes.addAll(issueAll(first));
+
+        assertThat(codes).hasSize(1000).doesNotHaveDuplicates();
+        assertThat(codes).allMatch(code -> code.length() == 3 && code.chars().allMatch(Character::isDigit));
+    }
+
+    @Test
+    void exhaustedSpaceFailsInsteadOfRepeatingCodes() {
+        SegmentShortCodeGenerator generator = newGenerator(2, DIGITS, "key");
+        for (int i = 0; i < 100; i++) {
+            generator.nextShortCode();
+        }
+
+        assertThatThrownBy(generator::nextShortCode)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("exhausted");
+    }
+
+    @Test
+    void consecutiveCodesDoNotRevealCreationOrder() {
+        List<String> codes = issue(newGenerator(7, "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789", "key"), 20);
+
+        assertThat(codes).doesNotHaveDuplicates();
+        assertThat(codes).isNotEqualTo(codes.stream().sorted().toList());
+    }
+
+    @Test
+    void permutationDependsOnTheKey() {
+        List<String> withKey = issue(newGenerator(4, DIGITS, "key"), 50);
+        segmentCounter.set(0);
+        List<String> withOtherKey = issue(newGenerator(4, DIGITS, "other-key"), 50);
+        segmentCounter.set(0);
+        List<String> withKeyAgain = issue(newGenerator(4, DIGITS, "key"), 50);
+
+        assertThat(withOtherKey).isNotEqualTo(withKey);
+        assertThat(withKeyAgain).isEqualTo(withKey);
+    }
+
+    private static List<String> issueAll(SegmentShortCodeGenerator generator) {
+        List<String> codes = new ArrayList<>();
+        try {
+            while (true) {
+                codes.add(generator.nextShortCode());
+            }
+        } catch (IllegalStateException e) {
+            return codes;
+        }
+    }
+
+    private static List<String> issue(SegmentShortCodeGenerator generator, int count) {
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(generator.nextShortCode());
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.urlshortener.util;
+
+import com.example.urlshortener.benchmark.Microbenchmark;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+/**
+ * Client address resolution before and after the single-pass parser. Every
+ * call clears the cached request attribute so the full resolution is timed.
+ */
+@EnabledIfSystemProperty(named = Microbenchmark.ENABLED_PROPERTY, matches = "true")
+class ClientIpResolverBenchmark {
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/abc1234");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    void compareWithTheSplitParser() {
+        ClientIpResolver resolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(resolver, "trustedProxyRanges",
+                List.of("127.0.0.0/8", "::1/128", "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16", "fc00::/7"));
+        resolver.init();
+
+        List<MockHttpServletRequest> requests = List.of(
+                request("203.0.113.5", null),
+                request("10.0.0.2", "198.51.100.7, 203.0.113.5, 10.0.0.1"),
+                request("2001:db8::1", null));
+        for (MockHttpServletRequest request : requests) {
+            String label = request.getRemoteAddr() + (request.getHeader("X-Forwarded-For") != null ? " + XFF" : "");
+            Microbenchmark.run("split parser, " + label, () -> {
+                request.removeAttribute(ClientIpResolver.CLIENT_IP_ATTRIBUTE);
+                return SplitParser.getClientIpAddress(request).length();
+            });
+            Microbenchmark.run("ClientIpResolver, " + label, () -> {
+                request.removeAttribute(ClientIpResolver.CLIENT_IP_ATTRIBUTE);
+                return resolver.getClientIpAddress(request).length();
+            });
+        }
+    }
+
+    // ClientInfoUtil.getClientIpAddress as it was before ClientIpResolver, minus the attribute caching
+    private static final class SplitParser {
+
+        private static final String[] IP_HEADER_CANDIDATES = {
+            "X-Forwarded-For",
+            "Proxy-Client-IP",
+            "WL-Proxy-Client-IP",
+            "HTTP_X_FORWARDED_FOR",
+            "HTTP_X_FORWARDED",
+            "HTTP_X_CLUSTER_CLIENT_IP",
+            "HTTP_CLIENT_IP",
+            "HTTP_FORWARDED_FOR",
+            "HTTP_FORWARDED",
+            "HTTP_VIA",
+            "REMOTE_ADDR"
+        };
+
+        static String getClientIpAddress(HttpServletRequest request) {
+            for (String header : IP_HEADER_CANDIDATES) {
+                String ipList = request.getHeader(header);
+                if (ipList != null && !ipList.isEmpty() && !"unknown".equalsIgnoreCase(ipList)) {
+                    String ip = ipList.split(",")[0].trim();
+                    if (isValidIpAddress(ip)) {
+                        return ip;
+                    }
+                }
+            }
+            return request.getRemoteAddr();
+        }
+
+        private static boolean isValidIpAddress(String ip) {
+            if (ip == null || ip.isEmpty()) {
+                return false;
+            }
+            String[] parts = ip.split("\\.");
+            if (parts.length != 4) {
+                return false;
+            }
+            try {
+                for (String part : parts) {
+                    int num = Integer.parseInt(part);
+                    if (num < 0 || num > 255) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.urlshortener.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientIpResolverTest {
+
+    private ClientIpResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(resolver, "trustedProxyRanges", List.of("127.0.0.0/8", "10.0.0.0/8", "fc00::/7"));
+        resolver.init();
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/abc1234");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    void forwardingHeadersFromUntrustedPeersAreIgnored() {
+        assertThat(resolver.getClientIpAddress(request("203.0.113.5", "198.51.100.1"))).isEqualTo("203.0.113.5");
+    }
+
+    @Test
+    void untrustedPeerIsNormalisedLikeForwardedAddresses() {
+        assertThat(resolver.getClientIpAddress(request("2001:DB8:0::1", null))).isEqualTo("2001:db8:0:0:0:0:0:1");
+        assertThat(resolver.getClientIpAddress(request("0:0:0:0:0:0:0:1", null))).isEqualTo("0:0:0:0:0:0:0:1");
+        assertThat(resolver.getClientIpAddress(request("::ffff:203.0.113.5", null))).isEqualTo("203.0.113.5");
+    }
+
+    @Test
+    void walksBackPastTrustedProxiesToTheClient() {
+        MockHttpServletRequest request = request("10.0.0.2", "198.51.100.7, 203.0.113.5, 10.0.0.1");
+
+        assertThat(resolver.getClientIpAddress(request)).isEqualTo("203.0.113.5");
+    }
+
+    @Test
+    void forwardedIpv6IsNormalised() {
+        assertThat(resolver.getClientIpAddress(request("127.0.0.1", "2001:0DB8::0001"))).isEqualTo("2001:db8:0:0:0:0:0:1");
+    }
+
+    @Test
+    void malformedHopStopsTheWalk() {
+        // The client can write anything left of the first proxy's entry
+        MockHttpServletRequest request = request("10.0.0.2", "198.51.100.7, bogus, 10.0.0.1");
+
+        assertThat(resolver.getClientIpAddress(request)).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void trustedPeerWithoutHeadersIsTheClient() {
+        assertThat(resolver.getClientIpAddress(request("fd00::1", null))).isEqualTo("fd00:0:0:0:0:0:0:1");
+    }
+
+    @Test
+    void resultIsCachedOnTheRequest() {
+        MockHttpServletRequest request = request("203.0.113.5", null);
+        resolver.getClientIpAddress(request);
+        request.setRemoteAddr("198.51.100.1");
+
+        assertThat(resolver.getClientIpAddress(request)).isEqualTo("203.0.113.5");
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.urlshortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpAddressTest {
+
+    @Test
+    void parsesIpv4IntoTheMappedForm() {
+        IpAddress address = IpAddress.parse("192.168.1.20");
+
+        assertThat(address).isEqualTo(IpAddress.ofIpv4(0xC0A80114));
+        assertThat(address.isIpv4()).isTrue();
+        assertThat(address.toString()).isEqualTo("192.168.1.20");
+        assertThat(IpAddress.parse("::ffff:192.168.1.20")).isEqualTo(address);
+    }
+
+    @Test
+    void rejectsMalformedIpv4() {
+        for (String text : new String[] {"256.1.1.1", "1.2.3", "1.2.3.4.5", "1..2.3", "1.2.3.", ".1.2.3", "1.2.3.4 "}) {
+            assertThat(IpAddress.parse(text)).as(text).isNull();
+        }
+    }
+
+    @Test
+    void everySpellingOfAnIpv6AddressParsesToTheSameValue() {
+        IpAddress expected = new IpAddress(0x2001_0db8_0000_0000L, 0x0000_0000_0000_0001L);
+
+        for (String text : new String[] {"2001:db8::1", "2001:DB8:0:0:0:0:0:1", "2001:0db8:0000::0001",
+                "2001:db8:0::0:1", "2001:db8::0:0.0.0.1", "2001:db8::1%eth0"}) {
+            assertThat(IpAddress.parse(text)).as(text).isEqualTo(expected);
+        }
+        assertThat(expected.toString()).isEqualTo("2001:db8:0:0:0:0:0:1");
+    }
+
+    @Test
+    void parsesTheEdgesOfCompression() {
+        assertThat(IpAddress.parse("::")).isEqualTo(new IpAddress(0, 0));
+        assertThat(IpAddress.parse("::1")).isEqualTo(new IpAddress(0, 1));
+        assertThat(IpAddress.parse("fe80::")).isEqualTo(new IpAddress(0xFE80_0000_0000_0000L, 0));
+        assertThat(IpAddress.parse("1:2:3:4:5:6:7::")).isEqualTo(new IpAddress(0x0001_0002_0003_0004L, 0x0005_0006_0007_0000L));
+        assertThat(IpAddress.parse("::2:3:4:5:6:7:8")).isEqualTo(new IpAddress(0x0000_0002_0003_0004L, 0x0005_0006_0007_0008L));
+    }
+
+    @Test
+    void rejectsMalformedIpv6() {
+        for (String text : new String[] {":", ":1", "1:", "1::2::3", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7",
+                "12345::", "g::1", "1:2:3:4:5:6:7:8::", "::1.2.3", "1:2:3:4:5:6:7:1.2.3.4", "2001:db8::1 "}) {
+            assertThat(IpAddress.parse(text)).as(text).isNull();
+        }
+    }
+
+    @Test
+    void acceptsOnlyAsciiHexDigits() {
+        // Arabic-Indic one, fullwidth A and fullwidth one: Character.digit would accept all of them
+        assertThat(IpAddress.parse("2001:db8::١")).isNull();
+        assertThat(IpAddress.parse("2001:db8::Ａ")).isNull();
+        assertThat(IpAddress.parse("１::1")).isNull();
+        assertThat(IpAddress.parse("2001:db8::aBcD")).isEqualTo(IpAddress.parse("2001:db8::abcd"));
+    }
+
+    @Test
+    void classifiesLocalAddresses() {
+        assertThat(IpAddress.parse("127.0.0.1").isLoopback()).isTrue();
+        assertThat(IpAddress.parse("::1").isLoopback()).isTrue();
+        assertThat(IpAddress.parse("172.31.255.255").isPrivate()).isTrue();
+        assertThat(IpAddress.parse("172.32.0.0").isPrivate()).isFalse();
+        assertThat(IpAddress.parse("fd00::1").isPrivate()).isTrue();
+        assertThat(IpAddress.parse("169.254.10.1").isLinkLocal()).isTrue();
+        assertThat(IpAddress.parse("fe80::1").isLinkLocal()).isTrue();
+        assertThat(IpAddress.parse("0.0.0.0").isLocal()).isTrue();
+        assertThat(IpAddress.parse("203.0.113.5").isLocal()).isFalse();
+        assertThat(IpAddress.parse("2001:db8::1").isLocal()).isFalse();
+    }
+
+    @Test
+    void convertsToInetAddressWithoutLookup() throws Exception {
+        assertThat(IpAddress.parse("203.0.113.5").toInetAddress()).isEqualTo(InetAddress.getByName("203.0.113.5"));
+        assertThat(IpAddress.parse("2001:db8::1").toInetAddress()).isEqualTo(InetAddress.getByName("2001:db8::1"));
+    }
+
+    @Test
+    void masksIpv4PrefixesInIpv4Bits() {
+        assertThat(IpAddress.parse("203.0.113.77").mask(24)).isEqualTo(IpAddress.parse("203.0.113.0"));
+        assertThat(IpAddress.parse("2001:db8:1:2::5").mask(48)).isEqualTo(IpAddress.parse("2001:db8:1::"));
+    }
+}
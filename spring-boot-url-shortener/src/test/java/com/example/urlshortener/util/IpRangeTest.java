@@ -0,0 +1,60 @@
+package com.example.urlshortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IpRangeTest {
+
+    @Test
+    void ipv4RangeMatchesItsBlockOnly() {
+        IpRange range = IpRange.parse("172.16.0.0/12");
+
+        assertThat(range.contains(IpAddress.parse("172.16.0.1"))).isTrue();
+        assertThat(range.contains(IpAddress.parse("172.31.255.255"))).isTrue();
+        assertThat(range.contains(IpAddress.parse("172.32.0.0"))).isFalse();
+        assertThat(range.contains(IpAddress.parse("::ffff:172.20.1.1"))).isTrue();
+        // An IPv6 address with the same low bits is not in an IPv4 block
+        assertThat(range.contains(IpAddress.parse("::ac10:1"))).isFalse();
+    }
+
+    @Test
+    void ipv6RangeMatchesItsBlockOnly() {
+        IpRange range = IpRange.parse("fc00::/7");
+
+        assertThat(range.contains(IpAddress.parse("fc00::1"))).isTrue();
+        assertThat(range.contains(IpAddress.parse("fdff:ffff::1"))).isTrue();
+        assertThat(range.contains(IpAddress.parse("fe00::1"))).isFalse();
+        assertThat(range.contains(IpAddress.parse("10.0.0.1"))).isFalse();
+    }
+
+    @Test
+    void prefixesBeyondSixtyFourBitsUseTheLowWord() {
+        IpRange range = IpRange.parse("2001:db8::ff00/120");
+
+        assertThat(range.contains(IpAddress.parse("2001:db8::ff01"))).isTrue();
+        assertThat(range.contains(IpAddress.parse("2001:db8::fe01"))).isFalse();
+    }
+
+    @Test
+    void bareAddressIsASingleHostAndHostBitsAreIgnored() {
+        assertThat(IpRange.parse("203.0.113.5").contains(IpAddress.parse("203.0.113.5"))).isTrue();
+        assertThat(IpRange.parse("203.0.113.5").contains(IpAddress.parse("203.0.113.6"))).isFalse();
+        assertThat(IpRange.parse(" 10.1.2.3/8 ").contains(IpAddress.parse("10.200.0.1"))).isTrue();
+    }
+
+    @Test
+    void zeroPrefixMatchesTheWholeFamily() {
+        assertThat(IpRange.parse("0.0.0.0/0").contains(IpAddress.parse("8.8.8.8"))).isTrue();
+        assertThat(IpRange.parse("0.0.0.0/0").contains(IpAddress.parse("2001:db8::1"))).isFalse();
+        assertThat(IpRange.parse("::/0").contains(IpAddress.parse("2001:db8::1"))).isTrue();
+    }
+
+    @Test
+    void invalidRangesAreRejected() {
+        for (String cidr : new String[] {"10.0.0.0/33", "::/129", "10.0.0.0/-1", "10.0.0.0/x", "10.0.0/8", "/8", ""}) {
+            assertThatThrownBy(() -> IpRange.parse(cidr)).as(cidr).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
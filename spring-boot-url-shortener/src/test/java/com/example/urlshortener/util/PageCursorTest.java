@@ -0,0 +1,65 @@
+package com.example.urlshortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void encodedCursorRoundTrips() {
+        PageCursor cursor = new PageCursor(42, 1234567890123L);
+
+        assertThat(PageCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void timePositionKeepsNanoseconds() {
+        LocalDateTime time = LocalDateTime.of(2026, 10, 17, 3, 16, 56, 550_123_456);
+
+        PageCursor decoded = PageCursor.decode(PageCursor.of(time, 7).encode());
+
+        assertThat(decoded.time()).isEqualTo(time);
+        assertThat(decoded.id()).isEqualTo(7);
+    }
+
+    @Test
+    void timesBeforeTheEpochRoundTrip() {
+        LocalDateTime time = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1);
+
+        assertThat(PageCursor.of(time, 1).time()).isEqualTo(time);
+    }
+
+    @Test
+    void encodedFormIsUrlSafe() {
+        String encoded = new PageCursor(Long.MAX_VALUE, Long.MAX_VALUE).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void blankCursorIsTheFirstPage() {
+        assertThat(PageCursor.decode(null)).isNull();
+        assertThat(PageCursor.decode("")).isNull();
+        assertThat(PageCursor.decode("  ")).isNull();
+    }
+
+    @Test
+    void foreignCursorsAreRejected() {
+        for (String cursor : new String[] {"not base64!", base64("v2:1:2"), base64("v1:1"), base64("v1:1:2:3"),
+                base64("v1:x:2"), base64("1:2")}) {
+            assertThatThrownBy(() -> PageCursor.decode(cursor)).as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.urlshortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingTest {
+
+    @Test
+    void countsAreExactWhileUnderCapacity() {
+        SpaceSaving summary = new SpaceSaving(3);
+        summary.offer(1, 5);
+        summary.offer(2, 1);
+        summary.offer(1, 2);
+        summary.offer(3, 4);
+
+        assertThat(summary.size()).isEqualTo(3);
+        assertThat(summary.top(10)).containsExactly(
+                new SpaceSaving.Entry(1, 7, 0),
+                new SpaceSaving.Entry(3, 4, 0),
+                new SpaceSaving.Entry(2, 1, 0));
+    }
+
+    @Test
+    void newKeyTakesOverTheSmallestCounterAndItsCountAsError() {
+        SpaceSaving summary = new SpaceSaving(2);
+        summary.offer(1, 10);
+        summary.offer(2, 3);
+        summary.offer(3, 1);
+
+        assertThat(summary.size()).isEqualTo(2);
+        assertThat(summary.top(10)).containsExactly(
+                new SpaceSaving.Entry(1, 10, 0),
+                new SpaceSaving.Entry(3, 4, 3));
+    }
+
+    @Test
+    void topIsLimitedAndHighestFirst() {
+        SpaceSaving summary = new SpaceSaving(10);
+        for (long key = 1; key <= 5; key++) {
+            summary.offer(key, key * 10);
+        }
+
+        assertThat(summary.top(2)).extracting(SpaceSaving.Entry::key).containsExactly(5L, 4L);
+        assertThat(summary.top(0)).isEmpty();
+    }
+
+    @Test
+    void heavyHittersAreKeptAndNoCountIsUnderestimated() {
+        int capacity = 20;
+        SpaceSaving summary = new SpaceSaving(capacity);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        long total = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // A few hot keys in a long tail of rare ones
+            long key = random.nextInt(10) < 3 ? random.nextInt(5) : 100 + random.nextInt(5_000);
+            summary.offer(key, 1);
+            exact.merge(key, 1L, Long::sum);
+            total++;
+        }
+
+        List<SpaceSaving.Entry> top = summary.top(capacity);
+        assertThat(top).hasSize(capacity);
+        for (SpaceSaving.Entry entry : top) {
+            long actual = exact.get(entry.key());
+            assertThat(entry.count()).isGreaterThanOrEqualTo(actual);
+            assertThat(entry.count() - entry.error()).isLessThanOrEqualTo(actual);
+        }
+        long threshold = total / capacity;
+        List<Long> keys = top.stream().map(SpaceSaving.Entry::key).toList();
+        exact.forEach((key, count) -> {
+            if (count > threshold) {
+                assertThat(keys).contains(key);
+            }
+        });
+        assertThat(keys.subList(0, 5)).containsExactlyInAnyOrder(0L, 1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void capacityMustBePositive() {
+        assertThatThrownBy(() -> new SpaceSaving(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}